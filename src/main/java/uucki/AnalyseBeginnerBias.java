@@ -18,7 +18,7 @@ public class AnalyseBeginnerBias {
     public static void main(String[] args) {
         Board board = Board.initialBoard(false);
         MonteCarloTreeSearch ai = new MonteCarloTreeSearch(0.2, MonteCarloTreeSearch.RANDOM, false);
-        ai.MAX_TIME = 500;
+        ai.limits.time = 500;
 
         int aiWins = 0;
         int ai1Wins = 0;
@@ -16,18 +16,18 @@ public class AnalyseSingleMove{
     public static void main(String[] args) {
         Board board = getBoardWithCornerMove(new uucki.game.reversi.Board());
         MonteCarloTreeSearch ai = new MonteCarloTreeSearch(0.2, MonteCarloTreeSearch.RANDOM, false);
-        ai.MAX_TIME = 1500;
+        ai.limits.time = 1500;
 
         board.print();
         ai.run(board, FieldValue.BLACK);
         printCornerMoves(ai);
 
-        ai.MAX_TIME = 0;
-        while(ai.MAX_TIME < 3000) {
+        ai.limits.time = 0;
+        while(ai.limits.time < 3000) {
             if(ai != null) {
             return;
             }
-            ai.MAX_TIME += 100;
+            ai.limits.time += 100;
             double ave = 0;
             double ave2 = 0;
             for(int i = 0; i < 10; i++) {
@@ -35,7 +35,7 @@ public class AnalyseSingleMove{
                 ave += ai.simulationCount.get() / 10.0;
                 ave2 += printCornerMoves(ai) / 10.0;
             }
-            System.out.println(ai.MAX_TIME + "," + ave + "," + ave2);
+            System.out.println(ai.limits.time + "," + ave + "," + ave2);
         }
     }
 
@@ -55,9 +55,8 @@ public class AnalyseSingleMove{
         for(Position p : positions) {
             Move move = new Move(p, root.color);
             Board b = root.item.makeMove(move);
-            Node<Board> node = new Node<Board>(b, opponentColor);
-            if(ai.getNodes(node.color).containsKey(node.item)) {
-                node = ai.getNodes(node.color).get(node.item);
+            Node<Board> node = ai.getNode(b, opponentColor);
+            if(node != null) {
                 String output = p.toString() + " - " + node.score + "/" + node.plays + " = " + ((double)node.score / node.plays) + ": " + p.isCorner();
                 sortedOutput.put(1 - ((double)node.score / node.plays), output);
                 System.out.println(output);
@@ -0,0 +1,86 @@
+package uucki;
+
+import uucki.algorithm.AlgorithmConfig;
+import uucki.algorithm.MonteCarloTreeSearch;
+import uucki.game.Board;
+import uucki.game.Games;
+import uucki.type.FieldValue;
+import uucki.type.Move;
+import uucki.type.Position;
+
+import java.util.*;
+
+/*
+ * Compares the shared tree with the root parallel modes of MonteCarloTreeSearch:
+ * simulations per second for every amount of threads, and how often the move is the
+ * same as the move of a shared search with 4 times the time, e.g.
+ * BenchmarkParallel 1,2,4,8,16 500 20
+ */
+public class BenchmarkParallel {
+
+    private final static String[] MODES = new String[]{"shared", "sum", "vote"};
+
+    //usage: BenchmarkParallel [threads,threads,..] [time] [positions] [seed]
+    public static void main(String[] args) {
+        String[] threadCounts = (args.length > 0 ? args[0] : "1," + Runtime.getRuntime().availableProcessors()).split(",");
+        long time = args.length > 1 ? Long.parseLong(args[1]) : 500;
+        int positionCount = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+        Random random = new Random(args.length > 3 ? Long.parseLong(args[3]) : 1);
+
+        List<Board> boards = new ArrayList<Board>();
+        List<FieldValue> colors = new ArrayList<FieldValue>();
+        while(boards.size() < positionCount) {
+            addRandomPosition(boards, colors, random);
+        }
+
+        int maxThreads = 1;
+        for(String threads : threadCounts) {
+            maxThreads = Math.max(maxThreads, Integer.parseInt(threads));
+        }
+        List<Position> reference = new ArrayList<Position>();
+        for(int i = 0; i < boards.size(); i++) {
+            AlgorithmConfig config = AlgorithmConfig.parse("mcts,threads=" + maxThreads + ",time=" + time * 4);
+            reference.add(new Position(config.create().run(boards.get(i), colors.get(i))));
+        }
+
+        System.out.println("mode,threads,simulations/sec,tree size,same move as reference");
+        for(String threads : threadCounts) {
+            for(String mode : MODES) {
+                AlgorithmConfig config = AlgorithmConfig.parse("mcts,threads=" + threads + ",time=" + time + ",parallel=" + mode);
+                long simulations = 0;
+                long treeSize = 0;
+                int sameMove = 0;
+                long startTime = System.currentTimeMillis();
+                for(int i = 0; i < boards.size(); i++) {
+                    MonteCarloTreeSearch mcts = (MonteCarloTreeSearch)config.create();
+                    Move move = mcts.run(boards.get(i), colors.get(i));
+                    simulations += mcts.simulationCount.get();
+                    treeSize += mcts.treeSize();
+                    if(new Position(move).equals(reference.get(i))) {
+                        sameMove++;
+                    }
+                }
+                double seconds = (System.currentTimeMillis() - startTime) / 1000.0;
+                System.out.println(mode + "," + threads + "," + simulations / seconds + "," + treeSize / boards.size() + "," + sameMove / (double)boards.size());
+            }
+        }
+    }
+
+    //a position after 10 to 40 random moves, where the player to move has a choice
+    private static void addRandomPosition(List<Board> boards, List<FieldValue> colors, Random random) {
+        Board board = Games.initialBoard(Games.REVERSI);
+        FieldValue color = FieldValue.WHITE;
+        int moves = 10 + random.nextInt(31);
+        for(int i = 0; i < moves && !board.isFinished(); i++) {
+            List<Position> positions = board.getPossiblePositions(color);
+            if(positions.size() > 0) {
+                board = board.makeMove(new Move(positions.get(random.nextInt(positions.size())), color));
+            }
+            color = color.getOpponent();
+        }
+        if(board.getPossiblePositions(color).size() > 1) {
+            boards.add(board);
+            colors.add(color);
+        }
+    }
+}
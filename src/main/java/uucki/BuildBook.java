@@ -0,0 +1,111 @@
+package uucki;
+
+import uucki.algorithm.AlgorithmConfig;
+import uucki.algorithm.MonteCarloTreeSearch;
+import uucki.data.GameRecord;
+import uucki.data.GameRecordReader;
+import uucki.data.OpeningBook;
+import uucki.game.Board;
+import uucki.game.Games;
+import uucki.type.FieldValue;
+import uucki.type.Move;
+import uucki.type.Node;
+import uucki.type.Position;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+ * Builds an opening book from self-play games: every position of the first plies of the
+ * games is searched with MCTS and the statistics of the root's children are added to the book.
+ * When the book file already exists its statistics are kept and the new ones added,
+ * so a book grows with every run, e.g.
+ * BuildBook games.bin book.bin 12 mcts,c=0.3,threads=1,time=5000 8
+ */
+public class BuildBook {
+
+    private final static long REPORT_INTERVAL = 10000;
+
+    //usage: BuildBook <games> <book> [plies] [search] [threads]
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if(args.length < 2) {
+            System.out.println("usage: BuildBook <games> <book> [plies] [search] [threads]");
+            return;
+        }
+        File bookFile = new File(args[1]);
+        int plies = args.length > 2 ? Integer.parseInt(args[2]) : 12;
+        AlgorithmConfig search = AlgorithmConfig.parse(args.length > 3 ? args[3] : "mcts,threads=1,time=5000");
+        int threads = args.length > 4 ? Integer.parseInt(args[4]) : Runtime.getRuntime().availableProcessors();
+
+        Map<Long, OpeningBook.Entry> entries = new ConcurrentHashMap<Long, OpeningBook.Entry>();
+        if(bookFile.exists()) {
+            entries.putAll(OpeningBook.open(bookFile).entries());
+            System.out.println("Adding to " + entries.size() + " positions of " + bookFile);
+        }
+
+        //positions that are the same up to symmetry are searched once
+        Map<Long, Node<Board>> positions = new LinkedHashMap<Long, Node<Board>>();
+        for(GameRecord game : GameRecordReader.readAll(new File(args[0]))) {
+            if(!game.game.equals(Games.REVERSI)) {
+                continue;
+            }
+            List<Board> boards = game.positions();
+            for(int i = 0; i < Math.min(plies, game.moves.length); i++) {
+                if(game.moves[i] != GameRecord.PASS) {
+                    FieldValue color = GameRecord.colorOf(i);
+                    positions.putIfAbsent(OpeningBook.key(boards.get(i), color), new Node<Board>(boards.get(i), color));
+                }
+            }
+        }
+        List<Node<Board>> work = new ArrayList<Node<Board>>(positions.values());
+        System.out.println("Searching " + work.size() + " positions with " + search);
+
+        AtomicInteger next = new AtomicInteger();
+        Thread[] workers = new Thread[threads];
+        for(int i = 0; i < threads; i++) {
+            workers[i] = new Thread(() -> {
+                MonteCarloTreeSearch mcts = (MonteCarloTreeSearch)search.create();
+                int index = 0;
+                while((index = next.getAndIncrement()) < work.size()) {
+                    addRootStatistics(mcts, work.get(index), entries);
+                }
+            });
+            workers[i].start();
+        }
+        while(true) {
+            boolean finished = true;
+            for(Thread worker : workers) {
+                worker.join(REPORT_INTERVAL);
+                finished &= !worker.isAlive();
+            }
+            System.out.println("Positions searched: " + Math.min(next.get(), work.size()) + "/" + work.size() + ", book entries: " + entries.size());
+            if(finished) {
+                break;
+            }
+        }
+
+        OpeningBook.write(bookFile, search.toString(), entries);
+        System.out.println("Wrote " + entries.size() + " positions to " + bookFile);
+    }
+
+    private static void addRootStatistics(MonteCarloTreeSearch mcts, Node<Board> root, Map<Long, OpeningBook.Entry> entries) {
+        mcts.run(root.item, root.color);
+        FieldValue opponent = root.color.getOpponent();
+        //moves to positions that are the same up to symmetry share a node of a symmetric search
+        //and an entry of the book, their plays are added once
+        Set<Long> added = new HashSet<Long>();
+        for(Position position : root.item.getPossiblePositions(root.color)) {
+            Board board = root.item.makeMove(new Move(position, root.color));
+            Node<Board> node = mcts.getNode(board, opponent);
+            if(node == null || node.plays == 0 || !added.add(OpeningBook.key(board, opponent))) {
+                continue;
+            }
+            int plays = node.plays;
+            double score = node.score;
+            entries.merge(OpeningBook.key(board, opponent), new OpeningBook.Entry(plays, score),
+                (a, b) -> new OpeningBook.Entry(a.plays + b.plays, a.score + b.score));
+        }
+    }
+}
@@ -2,36 +2,233 @@ package uucki;
 
 import java.io.*;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
+import uucki.algorithm.Algorithm;
+import uucki.algorithm.AlgorithmConfig;
+import uucki.data.BloomFilter;
+import uucki.data.GameRecord;
+import uucki.data.GameRecordReader;
+import uucki.data.LabelledPosition;
+import uucki.data.PositionWriter;
+import uucki.game.Games;
+import uucki.game.reversi.BitBoard;
 import uucki.game.reversi.Board;
 import uucki.heuristic.reversi.Basic;
 import uucki.heuristic.reversi.Util;
+import uucki.tournament.GameJob;
 import uucki.type.FieldValue;
 import uucki.type.Position;
 
 public class CreateData{
 
-    public static void main(String[] args) {
-        PrintWriter out = null;
-        try {
-            FileWriter fw = new FileWriter(args[0], true);
-            BufferedWriter bw = new BufferedWriter(fw);
-            out = new PrintWriter(bw);
-        } catch (IOException e) {
-            System.out.println("Could not open file");
+    public final static int POSITIONS = 20000000;
+
+    private final static long REPORT_INTERVAL = 10000;
+
+    private static AtomicLong duplicates = new AtomicLong();
+
+    //usage: CreateData <output> [positions] [threads] [unique] [canonical] [seed=<seed>]
+    //every thread writes its own shard, e.g. data.0.csv, data.1.csv
+    //output files ending in .bin are written in the binary position format, others as csv
+    //unique: positions that were made before are skipped (up to about 1% false positives)
+    //canonical: every position is written in the orientation BitBoard.canonicalSymmetry picks
+    //seed: shard i is made with seed + i, so the same data can be made again
+    //usage: CreateData search <games> <output> [labeller] [threads] [positions per game] [seed=<seed>]
+    //search: positions from the games that SelfPlay wrote, labelled with the value a search finds for
+    //the side to move, e.g. CreateData search games.bin labels.bin minimax,depth=6,time=100000 8
+    //seed: the positions of a game and the searches on them get seeds derived from seed and the game,
+    //with a node or simulation limit the same labels are made again, whatever thread takes the game
+    public static void main(String[] args) throws InterruptedException, IOException {
+        if(args[0].equals("search")) {
+            createSearchData(args);
             return;
         }
 
-        for(int i = 0; i < 20000000; i++) {
-            Board b = Util.getRandomBoard();
+        int positions = args.length > 1 ? Integer.parseInt(args[1]) : POSITIONS;
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        List<String> options = Arrays.asList(args).subList(Math.min(3, args.length), args.length);
+        boolean canonical = options.contains("canonical");
+        BloomFilter seen = options.contains("unique") ? new BloomFilter(positions, 10) : null;
+        Long seed = seedOption(options);
+
+        long startTime = System.currentTimeMillis();
+        Thread[] workers = new Thread[threads];
+        for(int i = 0; i < threads; i++) {
+            String fileName = threads == 1 ? args[0] : shardName(args[0], i);
+            int count = positions / threads + (i < positions % threads ? 1 : 0);
+            Random random = seed != null ? new Random(seed + i) : new Random();
+            workers[i] = new Thread(() -> {
+                try {
+                    generate(fileName, count, seen, canonical, random);
+                } catch (IOException e) {
+                    System.out.println("Could not write " + fileName + ": " + e.getMessage());
+                }
+            });
+            workers[i].start();
+        }
+        for(Thread worker : workers) {
+            worker.join();
+        }
+
+        double seconds = (System.currentTimeMillis() - startTime) / 1000.0;
+        System.out.println("Positions: " + positions + ", duplicates skipped: " + duplicates.get() + ", positions/sec: " + positions / seconds);
+    }
+
+    //the value of a seed= option, null when there is none
+    private static Long seedOption(List<String> options) {
+        Long seed = null;
+        for(String option : options) {
+            if(option.startsWith("seed=")) {
+                seed = Long.parseLong(option.substring("seed=".length()));
+            }
+        }
+        return seed;
+    }
+
+    //data.csv becomes data.3.csv
+    private static String shardName(String fileName, int shard) {
+        int dot = fileName.lastIndexOf('.');
+        if(dot <= fileName.lastIndexOf(File.separatorChar)) {
+            return fileName + "." + shard;
+        }
+        return fileName.substring(0, dot) + "." + shard + fileName.substring(dot);
+    }
+
+    private static void generate(String fileName, int positions, BloomFilter seen, boolean canonical, Random random) throws IOException {
+        boolean binary = fileName.endsWith(".bin");
+        PositionWriter binaryOut = binary ? new PositionWriter(new File(fileName), Games.REVERSI, "random,Basic") : null;
+        BufferedWriter out = binary ? null : new BufferedWriter(new FileWriter(fileName, true), 1 << 16);
+        StringBuilder line = new StringBuilder();
+
+        int written = 0;
+        while(written < positions) {
+            Board b = Util.getRandomBoard(random);
+            long black = BitBoard.mask(b, FieldValue.BLACK);
+            long white = BitBoard.mask(b, FieldValue.WHITE);
+            if(canonical) {
+                int symmetry = BitBoard.canonicalSymmetry(black, white);
+                if(symmetry != 0) {
+                    black = BitBoard.transform(black, symmetry);
+                    white = BitBoard.transform(white, symmetry);
+                    b = BitBoard.toBoard(black, white);
+                }
+            }
+            if(seen != null && !seen.add(BitBoard.hash(black, white))) {
+                duplicates.incrementAndGet();
+                continue;
+            }
+
             double scoreWhite = Basic.getValue(b, FieldValue.WHITE);
-            printData(out, b, scoreWhite, false);
+            if(binary) {
+                binaryOut.write(new LabelledPosition(black, white, FieldValue.WHITE, (float)scoreWhite));
+            } else {
+                line.setLength(0);
+                formatData(line, b, scoreWhite, false);
+                out.write(line.toString());
+                out.newLine();
+            }
+            written++;
         }
 
-        out.close();
+        if(binary) {
+            binaryOut.close();
+        } else {
+            out.close();
+        }
+    }
+
+    private static void createSearchData(String[] args) throws InterruptedException, IOException {
+        List<GameRecord> games = GameRecordReader.readAll(new File(args[1]));
+        String output = args[2];
+        AlgorithmConfig labeller = AlgorithmConfig.parse(args.length > 3 ? args[3] : "mcts,threads=1,time=1000");
+        int threads = args.length > 4 ? Integer.parseInt(args[4]) : Runtime.getRuntime().availableProcessors();
+        int positionsPerGame = args.length > 5 && !args[5].startsWith("seed=") ? Integer.parseInt(args[5]) : Integer.MAX_VALUE;
+        Long seed = seedOption(Arrays.asList(args).subList(Math.min(3, args.length), args.length));
+        if(games.isEmpty()) {
+            System.out.println("No games in " + args[1]);
+            return;
+        }
+
+        System.out.println("Labelling positions of " + games.size() + " games with " + labeller);
+        AtomicInteger nextGame = new AtomicInteger();
+        AtomicLong labelled = new AtomicLong();
+        long startTime = System.currentTimeMillis();
+
+        Thread[] workers = new Thread[threads];
+        for(int i = 0; i < threads; i++) {
+            String fileName = threads == 1 ? output : shardName(output, i);
+            workers[i] = new Thread(() -> {
+                //every thread has its own algorithm, they keep state between runs
+                Algorithm algorithm = labeller.create();
+                try (PositionWriter out = new PositionWriter(new File(fileName), games.get(0).game, labeller.toString())) {
+                    int index = 0;
+                    while((index = nextGame.getAndIncrement()) < games.size()) {
+                        String gameSeed = seed == null ? null : seed + ":" + index;
+                        labelled.addAndGet(label(games.get(index), algorithm, out, positionsPerGame, gameSeed));
+                    }
+                } catch (IOException e) {
+                    System.out.println("Could not write " + fileName + ": " + e.getMessage());
+                }
+            });
+            workers[i].start();
+        }
+
+        while(true) {
+            boolean finished = true;
+            for(Thread worker : workers) {
+                worker.join(REPORT_INTERVAL);
+                finished &= !worker.isAlive();
+            }
+            double seconds = (System.currentTimeMillis() - startTime) / 1000.0;
+            System.out.println("Games: " + Math.min(nextGame.get(), games.size()) + "/" + games.size() + ", positions: " + labelled.get() + ", positions/sec: " + labelled.get() / seconds);
+            if(finished) {
+                break;
+            }
+        }
+    }
+
+    //labels up to maxPositions random positions of the game, returns how many were written
+    //seed is null for positions and searches that differ every time
+    private static int label(GameRecord game, Algorithm algorithm, PositionWriter out, int maxPositions, String seed) throws IOException {
+        Random random = seed == null ? new Random() : new Random(GameJob.seedFor(seed));
+        List<uucki.game.Board> boards = game.positions();
+        List<Integer> plies = new ArrayList<Integer>();
+        for(int i = 0; i < game.moves.length; i++) {
+            //when a player has to pass or has only one move there is nothing to search
+            if(game.moves[i] != GameRecord.PASS && boards.get(i).getPossiblePositions(GameRecord.colorOf(i)).size() > 1) {
+                plies.add(i);
+            }
+        }
+        Collections.shuffle(plies, random);
+
+        int written = 0;
+        for(int ply : plies.subList(0, Math.min(maxPositions, plies.size()))) {
+            FieldValue side = GameRecord.colorOf(ply);
+            if(seed != null) {
+                algorithm.setSeed(GameJob.seedFor(seed + ":" + ply));
+            }
+            algorithm.run(boards.get(ply), side);
+            double value = algorithm.lastValue;
+            if(value < 0 || value > 1) {
+                throw new IllegalArgumentException("Label is not a win probability: " + value);
+            }
+            if(!Double.isNaN(value)) {
+                out.write(new LabelledPosition(boards.get(ply), side, value));
+                written++;
+            }
+        }
+        return written;
     }
 
     public static void printData(PrintWriter out, Board b, double score, boolean swapColors) {
+        StringBuilder line = new StringBuilder();
+        formatData(line, b, score, swapColors);
+        out.println(line);
+    }
+
+    public static void formatData(StringBuilder out, Board b, double score, boolean swapColors) {
         for(int x = 0; x < 8; x++) {
             for(int y = 0; y < 8; y++) {
                 Position position = new Position(x,y);
@@ -44,16 +241,16 @@ public class CreateData{
                 }
                 switch(value) {
                     case EMPTY:
-                        out.print("0,");
+                        out.append("0,");
                         break;
                     case BLACK:
-                        out.print("-1,");
+                        out.append("-1,");
                         break;
                     case WHITE:
-                        out.print("1,");
+                        out.append("1,");
                 }
             }
         }
-        out.println(score);
+        out.append(score);
     }
 }
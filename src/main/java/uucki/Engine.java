@@ -0,0 +1,411 @@
+package uucki;
+
+import uucki.algorithm.Algorithm;
+import uucki.algorithm.AlgorithmConfig;
+import uucki.algorithm.MonteCarloTreeSearch;
+import uucki.algorithm.RootSnapshot;
+import uucki.algorithm.SearchHandle;
+import uucki.algorithm.SearchLimits;
+import uucki.algorithm.SearchUpdate;
+import uucki.algorithm.TimeManager;
+import uucki.data.OpeningBook;
+import uucki.game.Board;
+import uucki.game.Games;
+import uucki.type.FieldValue;
+import uucki.type.Move;
+import uucki.type.Position;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.CompletionException;
+
+/*
+ * Plays moves for another program, a GUI or a tournament manager, that sends commands on stdin
+ * and reads the answers on stdout. The process keeps running between games, so the JIT stays
+ * warm and books are only loaded once. Moves are written like in game records, column letter and
+ * row number, "--" for a pass, white moves first. Commands:
+ *
+ * isready                           answers readyok
+ * setoption <algorithm>             e.g. setoption mcts,threads=2,reuse=true,book=book.bin
+ * game <reversi|fourinarow>         a new game from the initial position
+ * position <game> [moves f5d6--c3]  the initial position and the moves played since
+ * position <game> fields <W|B|-, row by row> <W|B>   any position and the color to move
+ * go [time ms] [nodes n] [simulations n] [depth n] [clock ms] [increment ms] [infinite]
+ *                                   searches the position, writes info lines and then bestmove.
+ *                                   Without limits the limits of the algorithm are used, with clock
+ *                                   the time manager divides the clock
+ * stop                              bestmove right away, or stops pondering
+ * ponder                            searches the position while the opponent, to move, thinks,
+ *                                   the next go continues with the tree
+ * hint                              answers hint with the move expected for the color to move
+ * quit
+ *
+ * Anything the algorithms print goes to stderr, errors are answered with error <message>.
+ */
+public class Engine {
+
+    //the search for hint, when no search of the position is running
+    private final static long HINT_TIME = 200;
+
+    private PrintStream out = null;
+    private Algorithm algorithm = null;
+    private SearchLimits defaultLimits = null;
+    //the clock of the algorithm's settings, every game starts with a full one
+    private long gameClock = 0;
+    private long gameIncrement = 0;
+    private TimeManager defaultTimeManager = null;
+    private Map<String, OpeningBook> books = new HashMap<String, OpeningBook>();
+
+    private String game = Games.REVERSI;
+    private Board board = null;
+    private FieldValue color = FieldValue.WHITE;
+    //the moves since the initial position, null after a position with fields
+    private String moves = "";
+
+    private volatile SearchHandle search = null;
+    private volatile SearchUpdate lastUpdate = null;
+    private boolean pondering = false;
+
+    public Engine(PrintStream out, AlgorithmConfig config) {
+        this.out = out;
+        setAlgorithm(config);
+        newGame(Games.REVERSI);
+    }
+
+    //usage: Engine [algorithm]
+    public static void main(String[] args) throws IOException {
+        PrintStream out = System.out;
+        System.setOut(System.err);
+        Engine engine = new Engine(out, AlgorithmConfig.parse(args.length > 0 ? args[0] : "mcts"));
+
+        BufferedReader in = new BufferedReader(new InputStreamReader(System.in));
+        String line = null;
+        while((line = in.readLine()) != null) {
+            if(!engine.command(line.trim())) {
+                break;
+            }
+        }
+        engine.stopAll();
+    }
+
+    //false after quit
+    public boolean command(String line) {
+        if(line.isEmpty()) {
+            return true;
+        }
+        String[] parts = line.split("\\s+");
+        try {
+            switch(parts[0]) {
+                case "isready":
+                    out.println("readyok");
+                    break;
+                case "setoption":
+                    stopAll();
+                    setAlgorithm(AlgorithmConfig.parse(line.substring(parts[0].length()).trim()));
+                    break;
+                case "game":
+                    stopAll();
+                    newGame(parts.length > 1 ? parts[1] : game);
+                    break;
+                case "position":
+                    stopAll();
+                    position(parts);
+                    break;
+                case "go":
+                    go(parts);
+                    break;
+                case "stop":
+                    if(search != null) {
+                        search.moveNow();
+                    } else {
+                        stopPondering();
+                    }
+                    break;
+                case "ponder":
+                    ponder();
+                    break;
+                case "hint":
+                    hint();
+                    break;
+                case "quit":
+                    return false;
+                default:
+                    out.println("error Unknown command: " + parts[0]);
+            }
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            out.println("error " + e.getMessage());
+        }
+        return true;
+    }
+
+    //books are kept by file, so changing other settings does not load them again
+    private void setAlgorithm(AlgorithmConfig newConfig) {
+        AlgorithmConfig withoutBook = new AlgorithmConfig(newConfig);
+        withoutBook.book = null;
+        Algorithm newAlgorithm = withoutBook.create();
+        if(newConfig.book != null) {
+            OpeningBook book = books.get(newConfig.book);
+            if(book == null) {
+                try {
+                    book = OpeningBook.load(newConfig.book);
+                } catch (IOException e) {
+                    throw new IllegalArgumentException("Could not open book " + newConfig.book + ": " + e.getMessage());
+                }
+                books.put(newConfig.book, book);
+            }
+            newAlgorithm.book = book;
+        }
+        algorithm = newAlgorithm;
+        defaultLimits = new SearchLimits(algorithm.limits);
+        gameClock = newConfig.clock;
+        gameIncrement = newConfig.increment;
+        resetClock();
+    }
+
+    private void newGame(String name) {
+        board = Games.initialBoard(name);
+        game = name;
+        color = FieldValue.WHITE;
+        moves = "";
+        resetClock();
+    }
+
+    private void resetClock() {
+        defaultTimeManager = gameClock > 0 ? new TimeManager(gameClock, gameIncrement) : null;
+        algorithm.timeManager = defaultTimeManager;
+    }
+
+    private void position(String[] parts) {
+        if(parts.length < 2) {
+            throw new IllegalArgumentException("Expected position <game> [moves ..] or position <game> fields .. <color>");
+        }
+        if(parts.length > 2 && parts[2].equals("fields")) {
+            if(parts.length != 5) {
+                throw new IllegalArgumentException("Expected position <game> fields <fields> <color>");
+            }
+            Board newBoard = Games.emptyBoard(parts[1]);
+            String fields = parts[3];
+            if(fields.length() != Games.rows(parts[1]) * Games.columns(parts[1])) {
+                throw new IllegalArgumentException("Expected " + Games.rows(parts[1]) * Games.columns(parts[1]) + " fields, got " + fields.length());
+            }
+            for(int i = 0; i < fields.length(); i++) {
+                FieldValue value = parseColor(fields.charAt(i));
+                if(value != FieldValue.EMPTY) {
+                    newBoard.setFieldValue(i / Games.columns(parts[1]), i % Games.columns(parts[1]), value);
+                }
+            }
+            FieldValue toMove = parseColor(parts[4].charAt(0));
+            if(toMove == FieldValue.EMPTY) {
+                throw new IllegalArgumentException("Unknown color: " + parts[4]);
+            }
+            board = newBoard;
+            game = parts[1];
+            color = toMove;
+            moves = null;
+            return;
+        }
+
+        Board newBoard = Games.initialBoard(parts[1]);
+        FieldValue toMove = FieldValue.WHITE;
+        String played = "";
+        if(parts.length > 2) {
+            if(!parts[2].equals("moves") || parts.length > 4) {
+                throw new IllegalArgumentException("Expected position <game> moves <moves>");
+            }
+            played = parts.length > 3 ? parts[3] : "";
+            for(int i = 0; i + 1 < played.length(); i += 2) {
+                String text = played.substring(i, i + 2);
+                if(!text.equals("--")) {
+                    Position position = parsePosition(text, parts[1]);
+                    if(!newBoard.getPossiblePositions(toMove).contains(position)) {
+                        throw new IllegalArgumentException("Illegal move: " + text);
+                    }
+                    newBoard = newBoard.makeMove(new Move(position, toMove));
+                }
+                toMove = toMove.getOpponent();
+            }
+        }
+        //a position that does not continue the game is a new game, with a full clock
+        boolean newGame = !parts[1].equals(game) || moves == null || !played.startsWith(moves);
+        board = newBoard;
+        game = parts[1];
+        color = toMove;
+        moves = played;
+        if(newGame) {
+            resetClock();
+        }
+    }
+
+    private void go(String[] parts) {
+        if(search != null) {
+            throw new IllegalStateException("Already searching");
+        }
+        SearchLimits limits = new SearchLimits();
+        boolean limited = false;
+        long clock = 0;
+        long increment = 0;
+        for(int i = 1; i < parts.length; i++) {
+            if(parts[i].equals("infinite")) {
+                limited = true;
+                continue;
+            }
+            if(i + 1 >= parts.length) {
+                throw new IllegalArgumentException("Expected a value after " + parts[i]);
+            }
+            long value = Long.parseLong(parts[++i]);
+            switch(parts[i - 1]) {
+                case "time":
+                    limits.time = value;
+                    break;
+                case "nodes":
+                    limits.nodes = value;
+                    break;
+                case "simulations":
+                    limits.simulations = value;
+                    break;
+                case "depth":
+                    limits.depth = (int)value;
+                    break;
+                case "clock":
+                    clock = value;
+                    break;
+                case "increment":
+                    increment = value;
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown limit: " + parts[i - 1]);
+            }
+            limited = limited || !parts[i - 1].equals("increment");
+        }
+        //the other program keeps the clock, the time manager only divides what it sends
+        algorithm.limits = limited ? limits : new SearchLimits(defaultLimits);
+        algorithm.timeManager = clock > 0 ? new TimeManager(clock, increment) : (limited ? null : defaultTimeManager);
+
+        pondering = false;
+        lastUpdate = null;
+        SearchHandle started = algorithm.start(board, color, update -> {
+            lastUpdate = update;
+            out.println(info(update));
+        });
+        search = started;
+        started.result().whenComplete((result, e) -> {
+            search = null;
+            if(e != null) {
+                Throwable cause = e instanceof CompletionException ? e.getCause() : e;
+                out.println("error " + cause.getMessage());
+                out.println("bestmove --");
+            } else {
+                out.println("bestmove " + format(result.move));
+            }
+        });
+    }
+
+    private void ponder() {
+        if(search != null) {
+            throw new IllegalStateException("Already searching");
+        }
+        if(board.isFinished()) {
+            throw new IllegalStateException("The game is finished");
+        }
+        algorithm.limits = new SearchLimits(defaultLimits);
+        algorithm.startPondering(board, color);
+        pondering = true;
+    }
+
+    //the best move of the running search, the most played move of pondering MCTS,
+    //or else the move of a short search
+    private void hint() {
+        SearchUpdate update = lastUpdate;
+        if(search != null && update != null) {
+            out.println("hint " + format(update.move));
+            return;
+        }
+        if(search != null) {
+            throw new IllegalStateException("No move yet");
+        }
+        if(pondering && algorithm instanceof MonteCarloTreeSearch) {
+            RootSnapshot snapshot = ((MonteCarloTreeSearch)algorithm).getSnapshot();
+            int best = -1;
+            for(int i = 0; i < snapshot.size(); i++) {
+                if(best < 0 || snapshot.getPlays(i) > snapshot.getPlays(best)) {
+                    best = i;
+                }
+            }
+            if(best >= 0) {
+                out.println("hint " + format(new Move(snapshot.getPosition(best), color)));
+                return;
+            }
+        }
+
+        stopPondering();
+        algorithm.limits = new SearchLimits(HINT_TIME);
+        algorithm.timeManager = null;
+        try {
+            Move move = algorithm.start(board, color).result().join().move;
+            out.println("hint " + format(move));
+        } catch (CompletionException e) {
+            out.println("error " + e.getCause().getMessage());
+        }
+    }
+
+    private void stopPondering() {
+        algorithm.stopPondering();
+        pondering = false;
+    }
+
+    //returns when nothing is searching anymore
+    private void stopAll() {
+        SearchHandle running = search;
+        if(running != null) {
+            running.moveNow();
+            try {
+                running.awaitEnd();
+            } catch (InterruptedException e) {
+                System.out.println("Interrupted");
+            }
+            //the result is written right after the end of the search
+            running.result().handle((result, e) -> null).join();
+        }
+        stopPondering();
+    }
+
+    private String info(SearchUpdate update) {
+        StringBuilder line = new StringBuilder("info move ");
+        line.append(format(update.move)).append(" value ").append(update.value).append(" depth ").append(update.depth)
+            .append(" simulations ").append(update.simulations).append(" nodes ").append(update.nodes)
+            .append(" time ").append(update.time).append(" pv ");
+        for(Move move : update.principalVariation) {
+            line.append(format(move));
+        }
+        return line.toString();
+    }
+
+    private static String format(Move move) {
+        if(move == null) {
+            return "--";
+        }
+        return "" + (char)('a' + move.column) + (move.row + 1);
+    }
+
+    private static Position parsePosition(String text, String game) {
+        int column = text.charAt(0) - 'a';
+        int row = text.charAt(1) - '1';
+        if(column < 0 || column >= Games.columns(game) || row < 0 || row >= Games.rows(game)) {
+            throw new IllegalArgumentException("Unknown move: " + text);
+        }
+        return new Position(row, column);
+    }
+
+    private static FieldValue parseColor(char c) {
+        switch(c) {
+            case 'W':
+                return FieldValue.WHITE;
+            case 'B':
+                return FieldValue.BLACK;
+            case '-':
+                return FieldValue.EMPTY;
+            default:
+                throw new IllegalArgumentException("Unknown field: " + c);
+        }
+    }
+}
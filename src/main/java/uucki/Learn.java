@@ -2,11 +2,6 @@ package uucki;
 
 import java.io.File;
 
-import org.datavec.api.io.converters.DoubleWritableConverter;
-import org.datavec.api.records.reader.RecordReader;
-import org.datavec.api.records.reader.impl.csv.CSVRecordReader;
-import org.datavec.api.split.FileSplit;
-import org.deeplearning4j.datasets.datavec.RecordReaderDataSetIterator;
 import org.deeplearning4j.eval.Evaluation;
 import org.deeplearning4j.nn.api.OptimizationAlgorithm;
 import org.deeplearning4j.nn.conf.MultiLayerConfiguration;
@@ -19,59 +14,61 @@ import org.deeplearning4j.nn.weights.WeightInit;
 import org.deeplearning4j.optimize.listeners.ScoreIterationListener;
 import org.nd4j.linalg.api.ndarray.INDArray;
 import org.nd4j.linalg.dataset.DataSet;
-import org.nd4j.linalg.dataset.SplitTestAndTrain;
 import org.nd4j.linalg.dataset.api.iterator.DataSetIterator;
 import org.nd4j.linalg.dataset.api.preprocessor.DataNormalization;
 import org.nd4j.linalg.dataset.api.preprocessor.NormalizerStandardize;
 import org.nd4j.linalg.lossfunctions.LossFunctions;
 
+import uucki.data.PositionDataSetIterator;
+
 public class Learn{
 
-    public static void main(String[] args) throws Exception {
-        RecordReader recordReader = new CSVRecordReader(0, ",");
-        recordReader.initialize(new FileSplit(new File("/home/richard/SoftDev/uucki-final-project/data.csv")));
+    public final static int BATCH_SIZE = 1000;
+    public final static int EPOCHS = 1;
+    public final static double TEST_FRACTION = 0.05;
+    public final static int SHUFFLE_BUFFER = 1 << 20;
 
-        DataSetIterator iterator = new RecordReaderDataSetIterator(recordReader, new DoubleWritableConverter(), 20000, 64, 64, 0, 100, true);
+    //usage: Learn <positions.bin> [batch size] [epochs] [augment]
+    //the positions are written by CreateData, the file is read as the network trains
+    //augment: the training set contains every position in all 8 orientations
+    public static void main(String[] args) throws Exception {
+        File data = new File(args.length > 0 ? args[0] : "data.bin");
+        int batchSize = args.length > 1 ? Integer.parseInt(args[1]) : BATCH_SIZE;
+        int epochs = args.length > 2 ? Integer.parseInt(args[2]) : EPOCHS;
+        boolean augment = args.length > 3 && args[3].equals("augment");
+        long seed = 6;
 
-        MultiLayerNetwork model = getNetwork();
+        DataSetIterator training = new PositionDataSetIterator(data, batchSize, false, TEST_FRACTION, SHUFFLE_BUFFER, seed, augment);
+        DataSetIterator test = new PositionDataSetIterator(data, batchSize, true, TEST_FRACTION, SHUFFLE_BUFFER, seed);
 
-        System.out.println("Starting to fit");
+        MultiLayerNetwork model = getNetwork(training.inputColumns());
 
-        DataSet testData = iterator.next();
-        while(iterator.hasNext()) {
-            model.fit(iterator.next());
+        System.out.println("Starting to fit on " + training.totalExamples() + " positions");
+        for(int epoch = 0; epoch < epochs; epoch++) {
+            long startTime = System.currentTimeMillis();
+            while(training.hasNext()) {
+                model.fit(training.next());
+            }
+            training.reset();
+            double seconds = (System.currentTimeMillis() - startTime) / 1000.0;
+            System.out.println("Epoch " + epoch + ": " + training.totalExamples() / seconds + " positions/sec, test set mse: " + meanSquaredError(model, test));
         }
+    }
 
-        System.out.println("Starting to predict");
+    private static double meanSquaredError(MultiLayerNetwork model, DataSetIterator iterator) {
         double sumSquaredError = 0;
-        double mean = 0;
-        int samples = 100;
-        for(int i = 0; i < samples; i++) {
-            DataSet first = testData.sample(1);
-            INDArray prediction = model.output(first.getFeatureMatrix());
-            sumSquaredError += Math.pow(first.getLabels().getDouble(0,0) - prediction.getDouble(0,0), 2);
-            mean += first.getLabels().getDouble(0,0);
-        }
-        System.out.println("Test set mse: " + Math.sqrt(sumSquaredError) / samples + " mean: " + (mean / samples));
-
-        samples = 100;
+        long samples = 0;
         iterator.reset();
-        iterator.next();
-        DataSet trainingSet = iterator.next();
-        for(int i = 0; i < samples; i++) {
-            DataSet first = trainingSet.sample(1);
-            INDArray prediction = model.output(first.getFeatureMatrix());
-            System.out.println(first);
-            System.out.println(prediction);
-            mean += first.getLabels().getDouble(0,0);
-            sumSquaredError += Math.pow(first.getLabels().getDouble(0,0) - prediction.getDouble(0,0), 2);
+        while(iterator.hasNext()) {
+            DataSet batch = iterator.next();
+            INDArray difference = model.output(batch.getFeatureMatrix()).sub(batch.getLabels());
+            sumSquaredError += difference.mul(difference).sumNumber().doubleValue();
+            samples += batch.numExamples();
         }
-        System.out.println("Training set mse: " + sumSquaredError / samples + " mean: " + (mean / samples));
-        recordReader.close();
+        return sumSquaredError / samples;
     }
 
-    private static MultiLayerNetwork getNetwork() {
-        int inputNum = 64;
+    private static MultiLayerNetwork getNetwork(int inputNum) {
         int hiddenNum = 64;
         int outputNum = 1;
         long seed = 6;
@@ -1,35 +1,91 @@
 package uucki;
 
 import uucki.game.fourinarow.Board;
+import uucki.game.Games;
 import uucki.algorithm.Algorithm;
+import uucki.algorithm.AlgorithmConfig;
 import uucki.algorithm.MonteCarloTreeSearch;
 import uucki.algorithm.Minimax;
 import uucki.type.FieldValue;
 import uucki.modes.VersusAI;
 import uucki.modes.AIvsAI;
 import uucki.modes.CustomBoard;
+import uucki.tournament.Coordinator;
+import uucki.tournament.Elo;
+import uucki.tournament.GameJob;
+import uucki.tournament.GameLog;
+import uucki.tournament.GameResult;
+import uucki.tournament.GameRunner;
+import uucki.tournament.Genome;
+import uucki.tournament.LocalRunner;
+import uucki.tournament.Sprt;
+import uucki.tournament.Worker;
 
 import java.io.*;
 import java.util.*;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
 
 public class OptimizeParameter {
 
     public final static int POPULATION_LIMIT = 10;
     public final static int GENERATIONS = 150;
+    //maximum number of rounds, every round plays each pairing once with both colors
+    public final static int ROUNDS = 10;
+    public final static double SPRT_ELO = 100;
+    public final static double SPRT_ALPHA = 0.05;
     public static Random random;
-
+    //chance that a member of the population is played again instead of making a new child
+    public final static double REEVALUATE = 0.2;
+    public final static String GAME = Games.FOUR_IN_A_ROW;
+    //games that are handed out at the same time when workers play them
+    public final static int COORDINATOR_GAMES = 64;
+    private static GameLog log = null;
+
+    //usage: OptimizeParameter [rank|evolve] [game log] [port]
+    //       OptimizeParameter worker <host> <port> [slots]
+    //an existing game log is resumed, games that are in it are not played again
+    //with a port the games are not played here, but handed out to workers that connect to it
     public static void main(String[] args) {
-        BufferedReader br = new BufferedReader(new InputStreamReader(System.in));
-        random = new Random();
+        String mode = args.length > 0 ? args[0] : "rank";
+        if(mode.equals("worker")) {
+            int slots = args.length > 3 ? Integer.parseInt(args[3]) : 1;
+            Worker.start(args[1], Integer.parseInt(args[2]), slots);
+            return;
+        }
+        String logFile = args.length > 1 ? args[1] : mode + "-games.log";
 
         try {
-            rankPopulation();
-        } catch (IOException e) {
+            log = new GameLog(new File(logFile));
+            System.out.println("Resuming with " + log.size() + " games from " + logFile);
+            if(log.getCorruptLines() > 0) {
+                System.out.println("Skipped " + log.getCorruptLines() + " corrupt lines");
+            }
 
+            GameRunner runner = null;
+            int concurrentGames = 0;
+            if(args.length > 2) {
+                runner = new Coordinator(log, Integer.parseInt(args[2]));
+                concurrentGames = COORDINATOR_GAMES;
+            } else {
+                concurrentGames = Math.max(1, Runtime.getRuntime().availableProcessors() / MonteCarloTreeSearch.THREADS);
+                runner = new LocalRunner(log, concurrentGames);
+            }
+
+            if(mode.equals("evolve")) {
+                findBestC(runner, concurrentGames);
+            } else {
+                rankPopulation(runner);
+            }
+            runner.close();
+            log.close();
+        } catch (IOException e) {
+            System.out.println("Could not write game log: " + e.getMessage());
         }
     }
 
-    private static void rankPopulation() throws IOException {
+    private static void rankPopulation(GameRunner runner) throws IOException {
         List<Double> population = new ArrayList<Double>();
         population.add(0.2);
         population.add(0.3);
@@ -55,45 +111,78 @@ public class OptimizeParameter {
 
         BufferedWriter result = new BufferedWriter(new FileWriter("result.csv"));
         BufferedWriter matrix = new BufferedWriter(new FileWriter("matrix.csv"));
-        int gamesPlayed = 0;
+        BufferedWriter ranking = new BufferedWriter(new FileWriter("ranking.csv"));
+
+        //one sequential test per pairing, a pairing stops as soon as it is decided
+        Map<String, Sprt> pairings = new HashMap<String, Sprt>();
         for(Double c : population) {
-            for(int round = 0; round < 10; round++) {
+            for(Double opponent : population) {
+                if(c < opponent) {
+                    pairings.put(c + "-" + opponent, new Sprt(-SPRT_ELO, SPRT_ELO, SPRT_ALPHA, SPRT_ALPHA));
+                }
+            }
+        }
+
+        int gamesPlayed = 0;
+        for(int round = 0; round < ROUNDS; round++) {
+            //the whole round is submitted at once, so the runner can play the games in parallel
+            List<Double[]> pairs = new ArrayList<Double[]>();
+            List<CompletableFuture<GameResult>> games = new ArrayList<CompletableFuture<GameResult>>();
+            for(Double c : population) {
                 for(Double opponent : population) {
-                    if(c == opponent) {
+                    if(c == opponent || pairings.get(Math.min(c, opponent) + "-" + Math.max(c, opponent)).isDecided()) {
                         continue;
                     }
-                    long time = System.currentTimeMillis();
-                    double winner = runSingleGame(c, opponent);
-                    System.out.println(System.currentTimeMillis() - time);
-
-                    if(winner == c) {
-                        double currentWins = resultMatrix.get(c).get(opponent);
-                        resultMatrix.get(c).put(opponent, currentWins+1.0);
-
-                        double currentScore = score.getOrDefault(winner, 0.0);
-                        score.put(winner, currentScore+1.0);
-                    } else if (winner == opponent) {
-                        double currentWins = resultMatrix.get(opponent).get(c);
-                        resultMatrix.get(opponent).put(c, currentWins+1.0);
-
-                        double currentScore = score.getOrDefault(winner, 0.0);
-                        score.put(winner, currentScore+1.0);
-                    } else {
-                        double currentWins = resultMatrix.get(c).get(opponent);
-                        resultMatrix.get(c).put(opponent, currentWins+0.5);
-
-                        currentWins = resultMatrix.get(opponent).get(c);
-                        resultMatrix.get(opponent).put(c, currentWins+0.5);
-
-                        double currentScore = score.getOrDefault(c, 0.0);
-                        score.put(c, currentScore+0.5);
-                        currentScore = score.getOrDefault(opponent, 0.0);
-                        score.put(opponent, currentScore+0.5);
+                    String key = c + "-" + opponent + "-" + round;
+                    AlgorithmConfig white = new AlgorithmConfig(c, MonteCarloTreeSearch.RANDOM, false, MonteCarloTreeSearch.THREADS);
+                    AlgorithmConfig black = new AlgorithmConfig(opponent, MonteCarloTreeSearch.RANDOM, false, MonteCarloTreeSearch.THREADS);
+                    pairs.add(new Double[]{c, opponent});
+                    games.add(runner.submit(new GameJob(key, GAME, white, black, GameJob.seedFor(key))));
+                }
+            }
 
-                    }
-                    gamesPlayed++;
-                    System.out.println("Played: " + gamesPlayed);
+            for(int i = 0; i < pairs.size(); i++) {
+                double c = pairs.get(i)[0];
+                double opponent = pairs.get(i)[1];
+                Sprt pairing = pairings.get(Math.min(c, opponent) + "-" + Math.max(c, opponent));
+                GameResult game = games.get(i).join();
+                double winner = winningValue(game.winner, c, opponent);
+
+                if(winner == c) {
+                    double currentWins = resultMatrix.get(c).get(opponent);
+                    resultMatrix.get(c).put(opponent, currentWins+1.0);
+
+                    double currentScore = score.getOrDefault(winner, 0.0);
+                    score.put(winner, currentScore+1.0);
+                } else if (winner == opponent) {
+                    double currentWins = resultMatrix.get(opponent).get(c);
+                    resultMatrix.get(opponent).put(c, currentWins+1.0);
+
+                    double currentScore = score.getOrDefault(winner, 0.0);
+                    score.put(winner, currentScore+1.0);
+                } else {
+                    double currentWins = resultMatrix.get(c).get(opponent);
+                    resultMatrix.get(c).put(opponent, currentWins+0.5);
+
+                    currentWins = resultMatrix.get(opponent).get(c);
+                    resultMatrix.get(opponent).put(c, currentWins+0.5);
+
+                    double currentScore = score.getOrDefault(c, 0.0);
+                    score.put(c, currentScore+0.5);
+                    currentScore = score.getOrDefault(opponent, 0.0);
+                    score.put(opponent, currentScore+0.5);
+
+                }
+                //the pairing is tested from the point of view of the smallest c
+                double lowestScore = winner == Math.min(c, opponent) ? 1 : 0;
+                boolean wasDecided = pairing.isDecided();
+                pairing.add(winner == -1000 ? 0.5 : lowestScore);
+                if(!wasDecided && pairing.isDecided()) {
+                    System.out.println("Decided " + Math.min(c, opponent) + " vs " + Math.max(c, opponent) + " after " + pairing.games() + " games, llr: " + pairing.llr());
                 }
+
+                gamesPlayed++;
+                System.out.println("Played: " + gamesPlayed);
             }
 
             result.write("=============new================");
@@ -116,113 +205,187 @@ public class OptimizeParameter {
                 }
                 matrix.newLine();
             }
+
+            //pairings are stopped early, so the ranking is based on elo instead of the total score
+            writeRanking(ranking, resultMatrix);
             result.flush();
             matrix.flush();
+            ranking.flush();
+
+            if(pairings.values().stream().allMatch(p -> p.isDecided())) {
+                break;
+            }
         }
 
         result.flush();
         matrix.flush();
         result.close();
         matrix.close();
+        ranking.close();
     }
 
-    private static void findBestC(BufferedReader br) {
-        double lowEnd = 0.2;
-        double highEnd = 0.6;
-
-        //initial population
-        List<Genome> population = new ArrayList<Genome>(POPULATION_LIMIT);
-        while(population.size() < POPULATION_LIMIT) {
-            double value = random.nextDouble() * (highEnd - lowEnd) + lowEnd;
-            Genome g = new Genome(0, value);
-            evaluate(g);
-            population.add(g);
+    private static void writeRanking(BufferedWriter ranking, SortedMap<Double, Map<Double, Double>> resultMatrix) throws IOException {
+        List<Double> players = new ArrayList<Double>(resultMatrix.keySet());
+        double[][] scores = new double[players.size()][players.size()];
+        for(int i = 0; i < players.size(); i++) {
+            for(int j = 0; j < players.size(); j++) {
+                scores[i][j] = resultMatrix.get(players.get(i)).get(players.get(j));
+            }
         }
+        double[] elo = Elo.maximumLikelihood(scores);
 
-        for(int i = 0; i < GENERATIONS; i++) {
-            //print some intermediate stats
-            double mean = mean(population);
-            double variance = variance(population);
-            int fitnessSum = population.stream().mapToInt(x -> x.fitness).sum();
-            int wins = fitnessSum - population.size() / 3;
-            System.out.println(i + "," + mean + "," + variance + "," + wins);
-
-            //build the new children population
-            List<Genome> children = new ArrayList<Genome>(POPULATION_LIMIT);
-            while(children.size() < POPULATION_LIMIT) {
-                Genome parent1 = selectGenome(population);
-                Genome parent2 = selectGenome(population);
-
-                Genome child1 = crossOver(parent1, parent2);
-                Genome child2 = new Genome(child1);
-                child2.mutate(random);
-
-                evaluate(child1);
-                evaluate(child2);
-                children.add(child1);
-                children.add(child2);
-            }
+        ranking.write("=============new================");
+        ranking.newLine();
+        for(int i = 0; i < players.size(); i++) {
+            ranking.write(players.get(i) + ", " + elo[i]);
+            ranking.newLine();
+        }
+    }
 
-            //new population
-            List<Genome> newPopulation = new ArrayList<Genome>(POPULATION_LIMIT);
+    //steady state evolution: a fixed number of evaluations is kept running, and every finished
+    //evaluation is put into the population right away instead of waiting for a whole generation
+    private static void findBestC(GameRunner runner, int concurrentGames) throws IOException {
+        int maxThreads = Runtime.getRuntime().availableProcessors();
 
-            //add 25% of the parents
-            int parentsToAdd = (int)Math.round(POPULATION_LIMIT * 0.25);
-            while(newPopulation.size() < parentsToAdd) {
-                newPopulation.add(selectGenome(population));
+        List<Genome> population = new ArrayList<Genome>(POPULATION_LIMIT);
+        int evaluations = restorePopulation(population);
+        System.out.println("Restored " + population.size() + " genomes");
+        //the seed follows from the log, so a resumed run makes the same genomes again
+        long seed = GameJob.seedFor("evolve" + evaluations);
+        random = new Random(seed);
+        System.out.println("Seed: " + seed);
+
+        BlockingQueue<Evaluation> evaluated = new LinkedBlockingQueue<Evaluation>();
+        int running = 0;
+        int totalEvaluations = POPULATION_LIMIT * GENERATIONS;
+        while(evaluations < totalEvaluations || running > 0) {
+            while(running < concurrentGames && evaluations < totalEvaluations) {
+                evaluate(runner, "eval" + evaluations++, nextGenome(population, maxThreads), evaluated);
+                running++;
             }
 
-            //fill the other 75% with children
-            while(newPopulation.size() < POPULATION_LIMIT) {
-                newPopulation.add(selectGenome(children));
+            try {
+                Evaluation evaluation = evaluated.take();
+                running--;
+                insert(population, evaluation);
+            } catch (InterruptedException e) {
+                break;
             }
 
-            //swap populations
-            population = newPopulation;
+            //print some intermediate stats
+            Genome best = population.stream().max(Comparator.comparingDouble(g -> g.fitness())).get();
+            System.out.println(evaluations + "," + mean(population) + "," + variance(population) + "," + best);
         }
     }
 
-    private static Genome selectGenome(List<Genome> population) {
-        int fitnessSum = population.stream().mapToInt(i -> i.fitness).sum();
-        double edge = random.nextDouble() * fitnessSum;
-
-        int currentEdge = 0;
-        for(Genome g : population) {
-            currentEdge += g.fitness;
-            if(edge <= currentEdge) {
-                return g;
-            }
+    private static Genome nextGenome(List<Genome> population, int maxThreads) {
+        if(population.size() < POPULATION_LIMIT) {
+            return Genome.random(random, 0.2, 0.6, maxThreads, strategies());
+        }
+
+        //fitness is based on a few games, so sometimes give a member of the population more games
+        if(random.nextDouble() < REEVALUATE) {
+            return selectGenome(population);
         }
-        return population.get(1);
+
+        Genome child = Genome.crossOver(random, selectGenome(population), selectGenome(population));
+        child.mutate(random, maxThreads, strategies());
+        return child;
     }
 
-    private static Genome mutate(Genome g) {
-        double range = 0.125;
-        return new Genome(0, random.nextGaussian() * range + g.cValue);
+    //the corners and weighted simulations only mean something for reversi
+    private static int strategies() {
+        return GAME.equals(Games.REVERSI) ? AlgorithmConfig.strategyCount() : 1;
     }
 
-    private static Genome crossOver(Genome g1, Genome g2) {
-        double newCValue = (g1.cValue + g2.cValue) * 0.5;
-        return new Genome(0, newCValue);
+    private static void insert(List<Genome> population, Evaluation evaluation) {
+        Genome g = evaluation.genome;
+        g.wins += evaluation.wins;
+        g.games += evaluation.games;
+        if(population.contains(g)) {
+            return;
+        }
+        if(population.size() < POPULATION_LIMIT) {
+            population.add(g);
+            return;
+        }
+
+        Genome worst = population.stream().min(Comparator.comparingDouble(x -> x.fitness())).get();
+        if(g.fitness() > worst.fitness()) {
+            population.set(population.indexOf(worst), g);
+        }
     }
 
+    //binary tournament selection
+    private static Genome selectGenome(List<Genome> population) {
+        Genome g1 = population.get(random.nextInt(population.size()));
+        Genome g2 = population.get(random.nextInt(population.size()));
+        return g1.fitness() >= g2.fitness() ? g1 : g2;
+    }
 
     private static double mean(List<Genome> list) {
-        return list.stream().mapToDouble(a -> a.cValue).average().getAsDouble();
+        return list.stream().mapToDouble(a -> a.config.c).average().getAsDouble();
     }
 
     private static double variance(List<Genome> list) {
         double mean = mean(list);
-        return list.stream().mapToDouble(a -> Math.abs(mean - a.cValue)).sum() / list.size();
+        return list.stream().mapToDouble(a -> Math.abs(mean - a.config.c)).sum() / list.size();
     }
 
-    public static void evaluate(Genome g) {
-        double winner = runGame(g.cValue, 0.25);
-        if(winner == g.cValue) {
-            g.fitness = 10;
-        } else {
-            g.fitness = 1;
+    //plays one game with each color against the reference player
+    private static void evaluate(GameRunner runner, String key, Genome g, BlockingQueue<Evaluation> evaluated) {
+        AlgorithmConfig reference = new AlgorithmConfig(0.25, MonteCarloTreeSearch.RANDOM, false, MonteCarloTreeSearch.THREADS);
+        GameJob asWhite = new GameJob(key + "-0", GAME, g.config, reference, GameJob.seedFor(key + "-0"));
+        GameJob asBlack = new GameJob(key + "-1", GAME, reference, g.config, GameJob.seedFor(key + "-1"));
+
+        runner.submit(asWhite).thenCombine(runner.submit(asBlack),
+                (white, black) -> new Evaluation(g, score(white, FieldValue.WHITE) + score(black, FieldValue.BLACK), 2))
+            .exceptionally(e -> {
+                System.out.println("Evaluation " + key + " failed: " + e.getMessage());
+                return new Evaluation(g, 0, 0);
+            })
+            .thenAccept(evaluated::add);
+    }
+
+    private static double score(GameResult result, FieldValue color) {
+        if(result.winner == color) {
+            return 1;
+        } else if(result.winner == FieldValue.EMPTY) {
+            return 0.5;
+        }
+        return 0;
+    }
+
+    //read back the evaluations of an earlier run, returns the number of the next evaluation
+    //a genome that was evaluated again gets the games of all its evaluations
+    private static int restorePopulation(List<Genome> population) {
+        Map<String, Genome> genomes = new HashMap<String, Genome>();
+        int evaluations = 0;
+        for(GameResult white : log.getResults()) {
+            if(!white.key.startsWith("eval") || !white.key.endsWith("-0")) {
+                continue;
+            }
+            String key = white.key.substring(0, white.key.length() - 2);
+            GameResult black = log.get(key + "-1");
+            evaluations = Math.max(evaluations, Integer.parseInt(key.substring(4)) + 1);
+            if(black == null) {
+                continue;
+            }
+            AlgorithmConfig config = null;
+            try {
+                config = AlgorithmConfig.parse(white.white);
+            } catch (IllegalArgumentException e) {
+                System.out.println("Skipping " + key + ": " + e.getMessage());
+                continue;
+            }
+            Genome g = genomes.get(config.toString());
+            if(g == null) {
+                g = new Genome(config);
+                genomes.put(config.toString(), g);
+            }
+            insert(population, new Evaluation(g, score(white, FieldValue.WHITE) + score(black, FieldValue.BLACK), 2));
         }
+        return evaluations;
     }
 
     public static List<Double> tournament(List<Double> population) {
@@ -267,12 +430,22 @@ public class OptimizeParameter {
         return value2;
     }
 
+    private static double winningValue(FieldValue winner, double white, double black) {
+        if(winner == FieldValue.WHITE) {
+            return white;
+        } else if(winner == FieldValue.BLACK) {
+            return black;
+        }
+        return -1000;
+    }
+
     public static double runSingleGame(double value1, double value2) {
         Algorithm ai1 = new MonteCarloTreeSearch(value1, MonteCarloTreeSearch.RANDOM, false);
         Algorithm ai2 = new MonteCarloTreeSearch(value2, MonteCarloTreeSearch.RANDOM, false);
         Board board = new Board();
         board.negativeWinner = true;
         AIvsAI mode = new AIvsAI(board, ai1, ai2, false);
+        mode.name = "c=" + value1 + " vs c=" + value2;
         board = (Board)mode.game();
         if(board.getWinner() == FieldValue.WHITE) {
             return value1;
@@ -284,29 +457,15 @@ public class OptimizeParameter {
     }
 
 }
-class Genome {
-    int fitness = 1;
-    double cValue = 1;
 
-    int n = 0;
-    double variance = 1;
-
-    public Genome(int fitness, double cValue) {
-        this.fitness = fitness;
-        this.cValue = cValue;
-    }
-
-    public Genome(Genome g) {
-        this.fitness = g.fitness;
-        this.cValue = g.cValue;
-        this.n = 0;
-        this.variance = g.variance;
-    }
+class Evaluation {
+    Genome genome = null;
+    double wins = 0;
+    int games = 0;
 
-    public void mutate(Random random) {
-        n++;
-        double randomNumber = random.nextGaussian();
-        variance = variance * Math.exp(randomNumber / Math.sqrt(n));
-        cValue = cValue + variance * random.nextGaussian();
+    public Evaluation(Genome genome, double wins, int games) {
+        this.genome = genome;
+        this.wins = wins;
+        this.games = games;
     }
 }
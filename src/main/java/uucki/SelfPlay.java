@@ -0,0 +1,116 @@
+package uucki;
+
+import uucki.algorithm.AlgorithmConfig;
+import uucki.data.GameRecord;
+import uucki.data.GameRecordWriter;
+import uucki.game.Board;
+import uucki.game.Games;
+import uucki.modes.AIvsAI;
+import uucki.type.FieldValue;
+
+import java.io.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+ * Plays many games between two algorithms without a window and writes every game
+ * as one line of moves (see GameRecord), or in the binary game format when the
+ * output file ends in .bin, e.g.
+ * SelfPlay games.txt 10000 64 mcts,c=0.3,threads=1,time=100 minimax,time=100
+ */
+public class SelfPlay {
+
+    private final static long REPORT_INTERVAL = 10000;
+
+    private static AtomicInteger gamesPlayed = new AtomicInteger();
+    private static AtomicInteger movesPlayed = new AtomicInteger();
+    private static AtomicInteger whiteWins = new AtomicInteger();
+    private static AtomicInteger blackWins = new AtomicInteger();
+
+    //usage: SelfPlay <output> [games] [concurrent games] [white] [black] [seed] [game]
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if(args.length == 0) {
+            System.out.println("usage: SelfPlay <output> [games] [concurrent games] [white] [black] [seed] [game]");
+            return;
+        }
+        int games = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+        int concurrentGames = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        AlgorithmConfig white = AlgorithmConfig.parse(args.length > 3 ? args[3] : "mcts,threads=1,time=100");
+        AlgorithmConfig black = AlgorithmConfig.parse(args.length > 4 ? args[4] : "mcts,threads=1,time=100");
+        long seed = args.length > 5 ? Long.parseLong(args[5]) : System.nanoTime();
+        String game = args.length > 6 ? args[6] : Games.REVERSI;
+
+        System.out.println("White: " + white);
+        System.out.println("Black: " + black);
+        GameRecordWriter binaryOut = null;
+        BufferedWriter out = null;
+        if(args[0].endsWith(".bin")) {
+            binaryOut = new GameRecordWriter(new File(args[0]), game, white + " " + black);
+        } else {
+            out = new BufferedWriter(new FileWriter(args[0], true));
+        }
+        final GameRecordWriter binary = binaryOut;
+        final BufferedWriter text = out;
+
+        ExecutorService executor = Executors.newFixedThreadPool(concurrentGames);
+        long startTime = System.currentTimeMillis();
+        for(int i = 0; i < games; i++) {
+            final long gameSeed = seed + i;
+            executor.execute(() -> {
+                GameRecord record = play(game, white, black, gameSeed);
+                try {
+                    if(binary != null) {
+                        binary.write(record);
+                    } else {
+                        synchronized(text) {
+                            text.write(record.toLine());
+                            text.newLine();
+                        }
+                    }
+                } catch (IOException e) {
+                    System.out.println("Could not write game: " + e.getMessage());
+                }
+            });
+        }
+        executor.shutdown();
+
+        while(!executor.awaitTermination(REPORT_INTERVAL, TimeUnit.MILLISECONDS)) {
+            report(startTime);
+        }
+        report(startTime);
+        if(binary != null) {
+            binary.close();
+        } else {
+            text.close();
+        }
+
+        //score of white, draws count as half
+        int played = gamesPlayed.get();
+        double score = (whiteWins.get() + (played - whiteWins.get() - blackWins.get()) * 0.5) / played;
+        System.out.println("White: " + whiteWins.get() + ", black: " + blackWins.get() + ", draws: " + (played - whiteWins.get() - blackWins.get()));
+        System.out.println("White score: " + score + ", elo difference: " + (-400 * Math.log10(1 / score - 1)));
+    }
+
+    public static GameRecord play(String game, AlgorithmConfig white, AlgorithmConfig black, long seed) {
+        AIvsAI mode = new AIvsAI(Games.initialBoard(game), white.create(), black.create(), false);
+        mode.setSeed(seed);
+        Board board = mode.game();
+        FieldValue winner = board.getWinner() == null ? FieldValue.EMPTY : board.getWinner();
+
+        gamesPlayed.incrementAndGet();
+        movesPlayed.addAndGet(mode.getMoves().size());
+        if(winner == FieldValue.WHITE) {
+            whiteWins.incrementAndGet();
+        } else if(winner == FieldValue.BLACK) {
+            blackWins.incrementAndGet();
+        }
+        return new GameRecord(game, seed, winner, mode.getMoves());
+    }
+
+    private static void report(long startTime) {
+        double seconds = (System.currentTimeMillis() - startTime) / 1000.0;
+        System.out.println("Games: " + gamesPlayed.get() + ", games/sec: " + gamesPlayed.get() / seconds + ", moves/sec: " + movesPlayed.get() / seconds);
+    }
+}
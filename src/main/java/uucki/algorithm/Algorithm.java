@@ -1,9 +1,181 @@
 package uucki.algorithm;
 
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import uucki.data.OpeningBook;
 import uucki.game.Board;
 import uucki.type.Move;
 import uucki.type.FieldValue;
+import uucki.type.Position;
 
 public abstract class Algorithm{
+    //chance to win the position of the last run for the color to move, between 0 and 1,
+    //NaN when nothing was searched
+    public double lastValue = Double.NaN;
+
+    public SearchLimits limits = new SearchLimits();
+    //when set the time of a move comes from the game clock instead of limits.time
+    public TimeManager timeManager = null;
+
+    //when collectMetrics is set every search fills metrics, and appends them to metricsFile
+    //when that is set too. metrics is null after a move that was not searched
+    public boolean collectMetrics = false;
+    public String metricsFile = null;
+    public SearchMetrics metrics = null;
+
+    public OpeningBook book = null;
+    //the book is played without searching during the first plies, if its moves have enough plays
+    public int BOOK_PLIES = 16;
+    public int BOOK_MIN_PLAYS = 1000;
+
+    //the modes call startPondering after every move of the algorithm when this is set
+    public boolean ponder = false;
+
+    //searches that were started with start run on these threads
+    private final static ExecutorService searches = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "search");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    //set by stop, the running search returns its best move as soon as it can
+    protected volatile boolean stopRequested = false;
+    //the handle of the search that was started with start, null while run is called directly.
+    //It is only cleared by the thread of that search, when it no longer touches stopRequested
+    private final AtomicReference<SearchHandle> handle = new AtomicReference<SearchHandle>();
+
     public abstract Move run(Board board, FieldValue turn);
+
+    //the state of the running search for the move it would play now
+    protected abstract SearchUpdate progress(Move move, long time, boolean finished);
+
+    //runs the search on another thread and returns right away, an algorithm runs one search at a time:
+    //when a search that was started before is still running this waits until its thread is done,
+    //so it should be stopped or cancelled first
+    public SearchHandle start(Board board, FieldValue color) {
+        return start(board, color, null);
+    }
+
+    //the listener gets every update, also of a search that is done before start returns
+    public SearchHandle start(Board board, FieldValue color, Consumer<SearchUpdate> listener) {
+        stopPondering();
+        return start(() -> run(board, color), listener);
+    }
+
+    protected SearchHandle start(Supplier<Move> search) {
+        return start(search, null);
+    }
+
+    private SearchHandle start(Supplier<Move> search, Consumer<SearchUpdate> listener) {
+        SearchHandle started = new SearchHandle(this);
+        if(listener != null) {
+            started.onUpdate(listener);
+        }
+        while(!handle.compareAndSet(null, started)) {
+            SearchHandle previous = handle.get();
+            if(previous != null) {
+                try {
+                    previous.awaitEnd();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Interrupted while the previous search ends");
+                }
+            }
+        }
+        stopRequested = false;
+        long startTime = System.currentTimeMillis();
+        searches.execute(() -> {
+            SearchUpdate result = null;
+            RuntimeException failure = null;
+            try {
+                Move move = search.get();
+                result = progress(move, System.currentTimeMillis() - startTime, true);
+            } catch (RuntimeException e) {
+                failure = e;
+            }
+            //done before the result is handed out, so the next search can start from it
+            stopRequested = false;
+            handle.compareAndSet(started, null);
+            if(failure != null) {
+                started.fail(failure);
+            } else {
+                started.finish(result);
+            }
+            started.ended();
+        });
+        return started;
+    }
+
+    //the running search plays its best move as soon as it can, also when run was called directly
+    public void stop() {
+        stopRequested = true;
+    }
+
+    void stop(SearchHandle search) {
+        if(handle.get() == search) {
+            stopRequested = true;
+        }
+    }
+
+    //keeps searching on the opponent's time: color is the opponent, to move on board. The next
+    //run stops it and continues with what it found for the move the opponent made.
+    //Algorithms that can not use the opponent's time do nothing
+    public void startPondering(Board board, FieldValue color) {
+
+    }
+
+    //waits until the search on the opponent's time has stopped
+    public void stopPondering() {
+
+    }
+
+    //sends an update to the handle of the search, when it was started with start
+    protected void publish(Move move, long startTime) {
+        SearchHandle current = handle.get();
+        if(current != null) {
+            current.update(progress(move, System.currentTimeMillis() - startTime, false));
+        }
+    }
+
+    protected void report(SearchMetrics metrics, long startTime) {
+        metrics.time = System.currentTimeMillis() - startTime;
+        this.metrics = metrics;
+        if(metricsFile != null) {
+            metrics.append(metricsFile);
+        }
+    }
+
+    //algorithms that make random choices draw them from a generator with this seed,
+    //with a simulation or node limit and one thread the same seed gives the same search
+    public void setSeed(long seed) {
+
+    }
+
+    //the most played book move, null when the book does not cover the position well enough
+    protected Move bookMove(Board board, FieldValue color) {
+        if(book == null || !(board instanceof uucki.game.reversi.Board) || board.whites + board.blacks - 4 >= BOOK_PLIES) {
+            return null;
+        }
+        List<Position> positions = board.getPossiblePositions(color);
+        Move bestMove = null;
+        OpeningBook.Entry bestEntry = null;
+        for(Position position : positions) {
+            Move move = new Move(position, color);
+            OpeningBook.Entry entry = book.get(board.makeMove(move), color.getOpponent());
+            if(entry != null && (bestEntry == null || entry.plays > bestEntry.plays)) {
+                bestMove = move;
+                bestEntry = entry;
+            }
+        }
+        if(bestEntry == null || bestEntry.plays < BOOK_MIN_PLAYS) {
+            return null;
+        }
+        lastValue = bestEntry.score / bestEntry.plays;
+        return bestMove;
+    }
 }
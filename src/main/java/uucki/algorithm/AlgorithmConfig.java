@@ -0,0 +1,247 @@
+package uucki.algorithm;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import uucki.data.OpeningBook;
+
+/*
+ * Describes how to build an algorithm, so it can be written to logs and
+ * sent to other processes, e.g. "mcts,c=0.3,strategy=corners,tuned=false,threads=3,time=500"
+ */
+public class AlgorithmConfig {
+
+    public final static String MCTS = "mcts";
+    public final static String MINIMAX = "minimax";
+
+    final static String[] STRATEGIES = new String[]{"random", "corners", "weighted"};
+    private final static String[] PARALLEL = new String[]{"shared", "sum", "vote"};
+
+    public String type = MCTS;
+    public double c = 0.2;
+    public int strategy = MonteCarloTreeSearch.RANDOM;
+    public boolean tuned = false;
+    public int threads = MonteCarloTreeSearch.THREADS;
+    //limits of the search, see SearchLimits, time=0 turns the clock off and then needs another limit
+    public long time = 500;
+    public int depth = 0;
+    public long nodes = 0;
+    public long simulations = 0;
+    //a game clock and the time that is added after every move, clock=0 is no clock
+    public long clock = 0;
+    public long increment = 0;
+    public boolean symmetric = false;
+    public double rave = 0;
+    //off unless asked for, configs that were logged before the solver existed mean no solver
+    public boolean solver = false;
+    public int prior = 0;
+    public double implicit = 0;
+    public int parallel = MonteCarloTreeSearch.SHARED;
+    //ponder searches on the opponent's time and needs the tree to be reused
+    public boolean reuse = false;
+    public boolean ponder = false;
+    public String book = null;
+    //file the metrics of every search are appended to, see SearchMetrics
+    public String metrics = null;
+    //0 is a new seed for every algorithm that is created
+    public long seed = 0;
+
+    public AlgorithmConfig() {
+
+    }
+
+    public AlgorithmConfig(double c, int strategy, boolean tuned, int threads) {
+        this.c = c;
+        this.strategy = strategy;
+        this.tuned = tuned;
+        this.threads = threads;
+    }
+
+    public AlgorithmConfig(AlgorithmConfig config) {
+        this.type = config.type;
+        this.c = config.c;
+        this.strategy = config.strategy;
+        this.tuned = config.tuned;
+        this.threads = config.threads;
+        this.time = config.time;
+        this.depth = config.depth;
+        this.nodes = config.nodes;
+        this.simulations = config.simulations;
+        this.clock = config.clock;
+        this.increment = config.increment;
+        this.symmetric = config.symmetric;
+        this.rave = config.rave;
+        this.solver = config.solver;
+        this.prior = config.prior;
+        this.implicit = config.implicit;
+        this.parallel = config.parallel;
+        this.reuse = config.reuse;
+        this.ponder = config.ponder;
+        this.book = config.book;
+        this.metrics = config.metrics;
+        this.seed = config.seed;
+    }
+
+    public Algorithm create() {
+        Algorithm algorithm = null;
+        if(type.equals(MINIMAX)) {
+            algorithm = new Minimax();
+        } else {
+            MonteCarloTreeSearch mcts = new MonteCarloTreeSearch(c, strategy, tuned, threads);
+            mcts.symmetric = symmetric;
+            mcts.rave = rave;
+            mcts.solver = solver;
+            mcts.prior = prior;
+            mcts.implicit = implicit;
+            mcts.parallel = parallel;
+            mcts.reuse = reuse || ponder;
+            algorithm = mcts;
+        }
+        algorithm.ponder = ponder;
+        algorithm.limits.time = time;
+        algorithm.limits.depth = depth;
+        algorithm.limits.nodes = nodes;
+        algorithm.limits.simulations = simulations;
+        if(clock > 0) {
+            algorithm.timeManager = new TimeManager(clock, increment);
+        }
+        if(seed != 0) {
+            algorithm.setSeed(seed);
+        }
+        if(metrics != null) {
+            algorithm.collectMetrics = true;
+            algorithm.metricsFile = metrics;
+        }
+        if(book != null) {
+            try {
+                algorithm.book = OpeningBook.load(book);
+            } catch (IOException e) {
+                throw new IllegalArgumentException("Could not open book " + book + ": " + e.getMessage());
+            }
+        }
+        return algorithm;
+    }
+
+    public String toString() {
+        if(type.equals(MINIMAX)) {
+            return type + ",time=" + time + limitsString() + (book != null ? ",book=" + book : "") + (metrics != null ? ",metrics=" + metrics : "");
+        }
+        //only written when set, so older game logs still match
+        return type + ",c=" + c + ",strategy=" + STRATEGIES[strategy] + ",tuned=" + tuned + ",threads=" + threads + ",time=" + time + limitsString() + (symmetric ? ",symmetric=true" : "") + (rave > 0 ? ",rave=" + rave : "") + (solver ? ",solver=true" : "") + (prior > 0 ? ",prior=" + prior : "") + (implicit > 0 ? ",implicit=" + implicit : "") + (parallel != MonteCarloTreeSearch.SHARED ? ",parallel=" + PARALLEL[parallel] : "") + (reuse ? ",reuse=true" : "") + (ponder ? ",ponder=true" : "") + (book != null ? ",book=" + book : "") + (seed != 0 ? ",seed=" + seed : "") + (metrics != null ? ",metrics=" + metrics : "");
+    }
+
+    private String limitsString() {
+        return (clock > 0 ? ",clock=" + clock + ",increment=" + increment : "") + (depth > 0 ? ",depth=" + depth : "") + (nodes > 0 ? ",nodes=" + nodes : "") + (simulations > 0 ? ",simulations=" + simulations : "");
+    }
+
+    public static String strategyName(int strategy) {
+        return STRATEGIES[strategy];
+    }
+
+    public static int strategyCount() {
+        return STRATEGIES.length;
+    }
+
+    public static AlgorithmConfig parse(String description) {
+        String[] parts = description.trim().split(",");
+        AlgorithmConfig config = new AlgorithmConfig();
+        config.type = parts[0];
+        if(!config.type.equals(MCTS) && !config.type.equals(MINIMAX)) {
+            throw new IllegalArgumentException("Unknown algorithm: " + config.type);
+        }
+
+        for(int i = 1; i < parts.length; i++) {
+            String[] keyValue = parts[i].split("=");
+            if(keyValue.length != 2) {
+                throw new IllegalArgumentException("Expected key=value: " + parts[i]);
+            }
+            String value = keyValue[1];
+            switch(keyValue[0]) {
+                case "c":
+                    config.c = Double.parseDouble(value);
+                    break;
+                case "strategy":
+                    config.strategy = parseStrategy(value);
+                    break;
+                case "tuned":
+                    config.tuned = Boolean.parseBoolean(value);
+                    break;
+                case "threads":
+                    config.threads = Integer.parseInt(value);
+                    break;
+                case "time":
+                    config.time = Long.parseLong(value);
+                    break;
+                case "symmetric":
+                    config.symmetric = Boolean.parseBoolean(value);
+                    break;
+                case "parallel":
+                    config.parallel = Arrays.asList(PARALLEL).indexOf(value);
+                    if(config.parallel < 0) {
+                        throw new IllegalArgumentException("Unknown parallel mode: " + value);
+                    }
+                    break;
+                case "prior":
+                    config.prior = Integer.parseInt(value);
+                    break;
+                case "implicit":
+                    config.implicit = Double.parseDouble(value);
+                    break;
+                case "reuse":
+                    config.reuse = Boolean.parseBoolean(value);
+                    break;
+                case "ponder":
+                    config.ponder = Boolean.parseBoolean(value);
+                    break;
+                case "solver":
+                    config.solver = Boolean.parseBoolean(value);
+                    break;
+                case "rave":
+                    config.rave = Double.parseDouble(value);
+                    break;
+                case "book":
+                    config.book = value;
+                    break;
+                case "depth":
+                    config.depth = Integer.parseInt(value);
+                    break;
+                case "nodes":
+                    config.nodes = Long.parseLong(value);
+                    break;
+                case "clock":
+                    config.clock = Long.parseLong(value);
+                    break;
+                case "increment":
+                    config.increment = Long.parseLong(value);
+                    break;
+                case "simulations":
+                    config.simulations = Long.parseLong(value);
+                    break;
+                case "metrics":
+                    config.metrics = value;
+                    break;
+                case "seed":
+                    config.seed = Long.parseLong(value);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown setting: " + keyValue[0]);
+            }
+        }
+        //a search without any limit only ends when it is stopped, games would never end.
+        //The depth of MCTS only limits its tree, not the simulations
+        boolean depthLimited = config.depth > 0 && config.type.equals(MINIMAX);
+        if(config.time == 0 && config.clock == 0 && config.nodes == 0 && config.simulations == 0 && !depthLimited) {
+            throw new IllegalArgumentException("No limit: " + description);
+        }
+        return config;
+    }
+
+    private static int parseStrategy(String value) {
+        for(int i = 0; i < STRATEGIES.length; i++) {
+            if(STRATEGIES[i].equals(value)) {
+                return i;
+            }
+        }
+        return Integer.parseInt(value);
+    }
+}
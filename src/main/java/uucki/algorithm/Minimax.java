@@ -1,5 +1,8 @@
 package uucki.algorithm;
 
+import uucki.events.Events;
+import uucki.events.MoveEvent;
+import uucki.events.SearchIterationEvent;
 import uucki.game.Board;
 import uucki.type.Position;
 import uucki.type.Move;
@@ -10,32 +13,152 @@ import java.util.*;
 
 public class Minimax extends Algorithm {
 
-    public long MAX_TIME = 1000;
+    private long cutOffTime = 0;
+    private long nodes = 0;
+    private int completedDepth = 0;
+    //the best move and the moves expected after it, of the last completed depth
+    private List<Move> principalVariation = new ArrayList<Move>();
+    private boolean stopped = false;
+    private boolean canStop = false;
+
+    //scores of the heuristic are turned into a win probability with a logistic curve, a
+    //difference of HEURISTIC_SCALE is about a corner
+    public double HEURISTIC_SCALE = 100;
+
+    public Minimax() {
+        limits.time = 1000;
+        limits.depth = 3;
+    }
 
     public Move run(Board board, FieldValue color) {
+        MoveEvent event = Events.moveStarted();
+        long startTime = System.currentTimeMillis();
+        Move move = findMove(board, color);
+        //a stop is for this search only, also when run was called directly
+        stopRequested = false;
+        if(timeManager != null) {
+            timeManager.used(System.currentTimeMillis() - startTime);
+        }
+        if(event != null) {
+            event.end();
+            if(event.shouldCommit()) {
+                event.algorithm = "minimax";
+                event.threads = 1;
+                event.color = color.name();
+                event.emptyFields = board.emptyFields();
+                event.move = move == null ? "" : new Position(move).toString();
+                event.value = lastValue;
+                event.nodes = nodes;
+                event.depth = completedDepth;
+                event.commit();
+            }
+        }
+        return move;
+    }
+
+    private Move findMove(Board board, FieldValue color) {
         long startingTime = System.currentTimeMillis();
-        Move bestMove = null;
+        lastValue = Double.NaN;
+        metrics = null;
+        nodes = 0;
+        completedDepth = 0;
+        principalVariation = new ArrayList<Move>();
+        Move bestMove = bookMove(board, color);
+        if(bestMove != null) {
+            principalVariation.add(bestMove);
+            return bestMove;
+        }
         int depth = 1;
-        long cutOffTime = startingTime + MAX_TIME;
-        while(!board.isFinished() && (System.currentTimeMillis() < cutOffTime || bestMove == null) && depth <= board.emptyFields() && depth < 4) {
-            Result result = maxValue(depth++, board, color, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY, cutOffTime);
-            if(System.currentTimeMillis() < cutOffTime) {
+        long moveTime = limits.time;
+        cutOffTime = limits.deadline(startingTime);
+        if(timeManager != null) {
+            moveTime = timeManager.moveTime(board);
+            cutOffTime = startingTime + timeManager.maxTime(board);
+        }
+        //true when the last two depths found the same move
+        boolean stable = false;
+        stopped = false;
+        //the first depth is always searched completely, so there is a move
+        canStop = false;
+        while(!board.isFinished() && !stopped && depth <= board.emptyFields() && (limits.depth == 0 || depth <= limits.depth)) {
+            //with a time manager the next depth is only started when it is likely to finish in
+            //the planned time, a move that changed gets until the end of the planned time
+            long elapsed = System.currentTimeMillis() - startingTime;
+            if(timeManager != null && depth > 1 && (elapsed > moveTime || (stable && elapsed > moveTime / 2))) {
+                break;
+            }
+            SearchIterationEvent iteration = Events.iterationStarted();
+            long iterationStart = nodes;
+            Result result = maxValue(depth++, board, color, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY);
+            if(iteration != null) {
+                iteration.end();
+                if(iteration.shouldCommit()) {
+                    iteration.algorithm = "minimax";
+                    iteration.depth = depth - 1;
+                    iteration.nodes = nodes - iterationStart;
+                    iteration.completed = !stopped;
+                    iteration.commit();
+                }
+            }
+            if(!stopped) {
                 Collections.reverse(result.moves);
                 Move move = result.moves.get(0);
+                stable = bestMove != null && new Position(bestMove).equals(new Position(move));
                 bestMove = move;
-                System.out.print(Arrays.toString(result.moves.toArray()));
-                System.out.println(" " + result.score);
-                System.out.println("Depth: " + depth);
+                lastValue = winProbability(result.score);
+                canStop = true;
+                completedDepth = depth - 1;
+                principalVariation = new ArrayList<Move>(result.moves);
+                publish(bestMove, startingTime);
             }
         }
+        if(collectMetrics) {
+            SearchMetrics searched = new SearchMetrics();
+            searched.nodes = nodes;
+            searched.maxDepth = completedDepth;
+            searched.depthSum = completedDepth;
+            report(searched, startingTime);
+        }
         return bestMove;
     }
 
-    public Result minValue(int depth, Board board, FieldValue color, double alpha, double beta, long cutOffTime) {
+    protected SearchUpdate progress(Move move, long time, boolean finished) {
+        return new SearchUpdate(move, lastValue, principalVariation, 0, nodes, completedDepth, time, finished);
+    }
+
+    public String toString() {
+        return "minimax," + limits;
+    }
+
+    //the chance to win for a score of the color to move, like the win rate of MCTS
+    private double winProbability(double score) {
+        if(score >= 1000) {
+            return 1;
+        } else if(score <= -1000) {
+            return 0;
+        }
+        return 1 / (1 + Math.exp(-score / HEURISTIC_SCALE));
+    }
+
+    //counts the node, true when the search has to stop
+    private boolean outOfBudget() {
+        nodes++;
+        if(!canStop || stopped) {
+            return stopped;
+        }
+        if(limits.nodes > 0 && nodes >= limits.nodes) {
+            stopped = true;
+        } else if(nodes % SearchLimits.NODE_CHECK_INTERVAL == 0 && (stopRequested || System.currentTimeMillis() > cutOffTime)) {
+            stopped = true;
+        }
+        return stopped;
+    }
+
+    public Result minValue(int depth, Board board, FieldValue color, double alpha, double beta) {
         if(board.isFinished()) {
             return new Result(board.getWinner() == otherPlayer(color) ? 1000 : -1000);
         }
-        if(depth == 0 || System.currentTimeMillis() > cutOffTime) {
+        if(outOfBudget() || depth == 0) {
             return new Result((int)Basic.getValue(board,otherPlayer(color)));
         }
 
@@ -44,14 +167,14 @@ public class Minimax extends Algorithm {
 
         //if there are no possible moves, the opponent can go again
         if(possiblePositions.size() == 0) {
-            return maxValue(depth, board, otherPlayer(color), alpha, beta, cutOffTime);
+            return maxValue(depth, board, otherPlayer(color), alpha, beta);
         }
 
         Result result = null;
 
         for(Position position : possiblePositions) {
             Move move = new Move(position, color);
-            result = newResultMin(result, maxValue(depth-1, board.makeMove(move), otherPlayer(color), alpha, beta, cutOffTime).add(move));
+            result = newResultMin(result, maxValue(depth-1, board.makeMove(move), otherPlayer(color), alpha, beta).add(move));
             beta = Math.min(beta, result.score);
             if(beta <= alpha) {
                 return result;
@@ -60,11 +183,11 @@ public class Minimax extends Algorithm {
         return result;
     }
 
-    public Result maxValue(int depth, Board board, FieldValue color, double alpha, double beta, long cutOffTime) {
+    public Result maxValue(int depth, Board board, FieldValue color, double alpha, double beta) {
         if(board.isFinished()) {
             return new Result(board.getWinner() == color ? 1000 : -1000);
         }
-        if(depth == 0 || System.currentTimeMillis() > cutOffTime) {
+        if(outOfBudget() || depth == 0) {
             return new Result((int)Basic.getValue(board,color));
         }
 
@@ -72,13 +195,13 @@ public class Minimax extends Algorithm {
 
         //if there are no possible moves, the opponent can go again
         if(possiblePositions.size() == 0) {
-            return minValue(depth, board, otherPlayer(color), alpha, beta, cutOffTime);
+            return minValue(depth, board, otherPlayer(color), alpha, beta);
         }
         Result result = null;
 
         for(Position position : possiblePositions) {
             Move move = new Move(position, color);
-            result = newResultMax(result, minValue(depth-1, board.makeMove(move), otherPlayer(color), alpha, beta, cutOffTime).add(move));
+            result = newResultMax(result, minValue(depth-1, board.makeMove(move), otherPlayer(color), alpha, beta).add(move));
             alpha = Math.max(alpha, result.score);
             if(beta <= alpha) {
                 return result;
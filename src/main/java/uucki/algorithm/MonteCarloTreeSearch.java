@@ -1,17 +1,24 @@
 package uucki.algorithm;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.Optional;
 
+import uucki.data.OpeningBook;
+import uucki.events.Events;
+import uucki.events.MoveEvent;
+import uucki.events.SearchIterationEvent;
+import uucki.events.TreeReuseEvent;
 import uucki.game.Board;
+import uucki.game.reversi.BitBoard;
 import uucki.heuristic.reversi.Basic;
 import uucki.type.FieldValue;
 import uucki.type.Move;
@@ -24,123 +31,488 @@ public class MonteCarloTreeSearch extends Algorithm implements Runnable {
     public static final int CORNERS = 1;
     public static final int WEIGHTED = 2;
 
-    public long MAX_TIME = 500 * 1;
-    private final static int THREADS = 3;
+    public final static int THREADS = 3;
+    //milliseconds between the updates of a search that was started with start
+    public final static long UPDATE_INTERVAL = 100;
+    public final static int PRINCIPAL_VARIATION_LENGTH = 12;
+    //with a time manager a search is extended while its best two moves are closer than this
+    public final static double CLOSE_VALUE = 0.02;
+    public int BOOK_PRIOR_PLAYS = 100;
     private boolean uniformTopChoice = false;
 
-    private Board currentBoard = null;
-    private FieldValue currentColor = null;
+    private volatile RootSnapshot snapshot = RootSnapshot.EMPTY;
     public AtomicInteger simulationCount = new AtomicInteger();
 
-    private ConcurrentHashMap<Board, Node<Board>> nodesBlack = new ConcurrentHashMap<Board, Node<Board>>();
-    private ConcurrentHashMap<Board, Node<Board>> nodesWhite = new ConcurrentHashMap<Board, Node<Board>>();
+    //reversi positions that are the same up to rotation or reflection share one node
+    public boolean symmetric = false;
+
+    //RAVE: the value of a move is blended with its all-moves-as-first value, with weight
+    //sqrt(rave / (3 * plays + rave)), so rave is about the amount of plays where both count
+    //the same. 0 turns it off. Combined with symmetric the squares of transposed nodes can
+    //be in another orientation, that makes the AMAF values less accurate.
+    public double rave = 0;
+
+    //MCTS-Solver: finished games are proven wins, draws or losses and the proofs are passed
+    //up the tree with minimax rules. Proven subtrees are not searched any more and the
+    //search stops when the root is proven.
+    public boolean solver = false;
+
+    //heuristic priors for reversi: new nodes start with prior plays at the win rate that
+    //Basic.getValue predicts, and the heuristic is backed up as an implicit minimax value
+    //that is mixed into the win rate with weight implicit
+    public int prior = 0;
+    public double implicit = 0;
+    public final static double HEURISTIC_SCALE = 50;
+
+    //SHARED: all threads search one tree, ROOT_SUM and ROOT_VOTE: every thread searches its
+    //own tree and at the end the plays of the root's children are summed, or every tree
+    //votes for its best move
+    public static final int SHARED = 0;
+    public static final int ROOT_SUM = 1;
+    public static final int ROOT_VOTE = 2;
+    public int parallel = SHARED;
+
+    //the tree is kept between moves: when the new position is in it, it becomes the root and
+    //the nodes with fewer stones than the root are removed, those can not be reached any more.
+    //Only the shared tree is kept. Pondering searches until it is stopped or has added
+    //PONDER_NODES nodes, with all threads of the algorithm
+    public boolean reuse = false;
+    public int PONDER_NODES = 500000;
+    private SearchHandle pondering = null;
+
+    //every worker gets its own stream, split off this generator when a search starts
+    private SplittableRandom random = new SplittableRandom();
+
+    private SearchTree tree = new SearchTree(null, true);
+    private List<SearchTree> privateTrees = new ArrayList<SearchTree>();
     public Node<Board> rootNode = null;
-    private long cutOffTime = 0;
+    private volatile long cutOffTime = 0;
+    //the limits of the current search, the workers read them
+    private SearchLimits active = limits;
+    //the metrics the workers of the current search add to, null when none are collected
+    private SearchMetrics collecting = null;
 
     private double c = 0;
     private int simulatedStrategy = RANDOM;
     private boolean tuned = false;
-
+    private int threads = THREADS;
 
     public MonteCarloTreeSearch() {
-
+        limits.time = 500;
     }
 
     public MonteCarloTreeSearch(double c, int simulatedStrategy, boolean tuned) {
+        this();
         this.c = c;
         this.simulatedStrategy = simulatedStrategy;
         this.tuned = tuned;
     }
 
+    public MonteCarloTreeSearch(double c, int simulatedStrategy, boolean tuned, int threads) {
+        this(c, simulatedStrategy, tuned);
+        this.threads = threads;
+    }
+
+    public void setSeed(long seed) {
+        random = new SplittableRandom(seed);
+    }
+
     public Move run(Board board, FieldValue color) {
-        cleanup();
-        currentBoard = board;
-        currentColor = color;
-        rootNode = new Node<Board>(board, color);
+        stopPondering();
+        MoveEvent event = Events.moveStarted();
+        long startTime = System.currentTimeMillis();
+        Move move = findMove(board, color, limits, false);
+        //a stop is for this search only, also when run was called directly
+        stopRequested = false;
+        if(timeManager != null) {
+            timeManager.used(System.currentTimeMillis() - startTime);
+        }
+        if(event != null) {
+            event.end();
+            if(event.shouldCommit()) {
+                event.algorithm = "mcts";
+                event.c = c;
+                event.strategy = AlgorithmConfig.STRATEGIES[simulatedStrategy];
+                event.threads = threads;
+                event.color = color.name();
+                event.emptyFields = board.emptyFields();
+                event.move = move == null ? "" : new Position(move).toString();
+                event.value = lastValue;
+                event.simulations = simulationCount.get();
+                event.nodes = treeSize();
+                event.commit();
+            }
+        }
+        return move;
+    }
+
+    public void startPondering(Board board, FieldValue color) {
+        stopPondering();
+        if(parallel != SHARED || board.isFinished()) {
+            return;
+        }
+        //when the opponent has to pass the next search is for this position
+        FieldValue toMove = board.getPossiblePositions(color).size() > 0 ? color : color.getOpponent();
+        SearchLimits ponderLimits = new SearchLimits();
+        ponderLimits.nodes = limits.nodes > 0 ? limits.nodes : PONDER_NODES;
+        ponderLimits.depth = limits.depth;
+        pondering = start(() -> findMove(board, toMove, ponderLimits, true));
+    }
+
+    public void stopPondering() {
+        if(pondering == null) {
+            return;
+        }
+        pondering.cancel();
+        try {
+            pondering.awaitEnd();
+        } catch (InterruptedException e) {
+            System.out.println("Interrupted");
+        }
+        pondering = null;
+    }
+
+    private Move findMove(Board board, FieldValue color, SearchLimits limits, boolean ponder) {
+        if(!reuse || !reuseTree(board, color)) {
+            cleanup();
+            rootNode = new Node<Board>(board, color);
+            tree.root = rootNode;
+        }
+        synchronized(privateTrees) {
+            privateTrees.clear();
+        }
+        simulationCount.set(0);
+        lastValue = Double.NaN;
+        metrics = null;
+        snapshot = RootSnapshot.EMPTY;
+        active = limits;
 
         List<Position> positions = rootNode.item.getPossiblePositions(color);
         if(positions.size() == 0) {
             return null;
         }
-        if(positions.size() == 1) {
+        //when pondering the opponent's move is not known, so it is searched anyway
+        if(positions.size() == 1 && !ponder) {
             return new Move(positions.get(0), color);
         }
+        Move bookMove = ponder ? null : bookMove(board, color);
+        if(bookMove != null) {
+            return bookMove;
+        }
+        seedFromBook(tree);
 
         ExecutorService executor = Executors.newCachedThreadPool();
 
         long startingTime = System.currentTimeMillis();
-        cutOffTime = startingTime + MAX_TIME;
-
-        for(int i = 0; i < THREADS; i++) {
-            executor.execute(this);
+        long moveTime = limits.time;
+        long maxTime = limits.time;
+        if(timeManager != null && !ponder) {
+            moveTime = timeManager.moveTime(board);
+            maxTime = timeManager.maxTime(board);
+        }
+        cutOffTime = maxTime > 0 ? startingTime + maxTime : Long.MAX_VALUE;
+        collecting = collectMetrics && !ponder ? new SearchMetrics() : null;
+
+        //with a simulation or node budget and no clock more threads on one tree would only make
+        //the search depend on timing, pondering and searches until stop depend on timing anyway
+        boolean budget = limits.simulations > 0 || limits.nodes > 0;
+        int workers = maxTime == 0 && budget && parallel == SHARED && !ponder ? 1 : threads;
+        for(int i = 0; i < workers; i++) {
+            final int worker = i;
+            final SplittableRandom stream = random.split();
+            executor.execute(() -> work(worker, workers, stream));
         }
 
         try {
-            Thread.sleep(MAX_TIME);
+            //the workers stop at the cut off time, at their budget, when they are asked to stop,
+            //or earlier when the root is proven. Root parallel trees can only be read at the end
             executor.shutdown();
-            executor.awaitTermination(MAX_TIME*2, TimeUnit.MILLISECONDS);
+            long waitUntil = maxTime > 0 ? startingTime + maxTime * 3 : Long.MAX_VALUE;
+            //a time manager looks at the root more often than the updates are sent
+            long interval = moveTime < maxTime ? Math.max(1, Math.min(UPDATE_INTERVAL, moveTime / 20)) : UPDATE_INTERVAL;
+            long lastUpdate = startingTime;
+            while(!executor.awaitTermination(Math.min(interval, Math.max(1, waitUntil - System.currentTimeMillis())), TimeUnit.MILLISECONDS)
+                    && System.currentTimeMillis() < waitUntil) {
+                long now = System.currentTimeMillis();
+                if(parallel == SHARED) {
+                    snapshot = snapshot(tree, now - startingTime);
+                }
+                if(parallel == SHARED && now - lastUpdate >= UPDATE_INTERVAL) {
+                    publish(getBestMove(tree), startingTime);
+                    lastUpdate = now;
+                }
+                if(parallel == SHARED && moveTime < maxTime && decided(now - startingTime, moveTime)) {
+                    cutOffTime = now;
+                }
+            }
         } catch (InterruptedException e) {
             System.out.println("Interrupted");
         }
 
-        Move bestMove = getBestMove(rootNode);
-
-        return bestMove;
+        Move move = null;
+        if(parallel == SHARED) {
+            move = getBestMove(tree);
+        } else {
+            mergePrivateTrees();
+            move = parallel == ROOT_VOTE ? getVotedMove() : getBestMove(tree);
+        }
+        snapshot = snapshot(tree, System.currentTimeMillis() - startingTime);
+        if(collecting != null) {
+            collecting.treeSize = treeSize();
+            report(collecting, startingTime);
+        }
+        return move;
     }
 
+    //a single worker with the whole budget
     public void run() {
+        work(0, 1, random.split());
+    }
+
+    //the simulation and node budgets are divided over the workers
+    private void work(int worker, int workers, SplittableRandom random) {
+        long simulations = budget(active.simulations, worker, workers);
+        long nodes = budget(active.nodes, worker, workers);
+        if(parallel == SHARED) {
+            search(tree, simulations, nodes, random);
+            return;
+        }
+        SearchTree own = new SearchTree(new Node<Board>(rootNode.item, rootNode.color), false);
+        seedFromBook(own);
+        search(own, simulations, nodes, random);
+        synchronized(privateTrees) {
+            privateTrees.add(own);
+        }
+    }
+
+    private static long budget(long limit, int worker, int workers) {
+        if(limit == 0) {
+            return Long.MAX_VALUE;
+        }
+        return limit / workers + (worker < limit % workers ? 1 : 0);
+    }
+
+    private void search(SearchTree tree, long maxSimulations, long maxNodes, SplittableRandom random) {
+        Node<Board> root = tree.root;
+        long simulations = 0;
+        long counted = 0;
+        long nodes = 0;
+        FieldValue[] played = rave > 0 ? new FieldValue[root.item.board.length] : null;
+        SearchMetrics.Recorder recorder = collecting != null ? new SearchMetrics.Recorder() : null;
+        SearchIterationEvent iteration = Events.iterationStarted();
         int biggestDepth = 0;
-        int simulations = 0;
-        List<Position> positions = rootNode.item.getPossiblePositions(rootNode.color);
-        while(System.currentTimeMillis() < cutOffTime) {
+        while(root.proven == Node.UNKNOWN && simulations < maxSimulations && nodes < maxNodes) {
+            if(simulations % SearchLimits.SIMULATION_CHECK_INTERVAL == 0) {
+                //kept up to date for the updates of the search
+                simulationCount.addAndGet((int)(simulations - counted));
+                counted = simulations;
+                if(stopRequested || System.currentTimeMillis() >= cutOffTime) {
+                    break;
+                }
+            }
+            boolean timed = recorder != null && recorder.sample();
+            long phaseStart = timed ? System.nanoTime() : 0;
             List<Node<Board>> ancestors = new ArrayList<Node<Board>>();
-            ancestors.add(rootNode);
-            selectAndExpand(ancestors);
-            biggestDepth = Math.max(biggestDepth, ancestors.size());
+            List<Integer> moves = new ArrayList<Integer>();
+            ancestors.add(root);
+            selectAndExpand(tree, ancestors, moves);
+            if(timed) {
+                phaseStart = recorder.phase(SearchMetrics.SELECT, phaseStart);
+            }
+            biggestDepth = Math.max(biggestDepth, ancestors.size() - 1);
             Node<Board> lastNode = ancestors.get(ancestors.size() - 1);
-            FieldValue winner = simulate(lastNode, simulatedStrategy);
-            getNodes(lastNode.color).put(lastNode.item, lastNode);
+            if(played != null) {
+                Arrays.fill(played, null);
+            }
+            FieldValue winner = simulate(lastNode, simulatedStrategy, played, random);
+            if(timed) {
+                phaseStart = recorder.phase(SearchMetrics.SIMULATE, phaseStart);
+            }
+            //when another thread added the same node first, its node gets the result
+            Node<Board> existing = tree.getNodes(lastNode.color).putIfAbsent(key(lastNode.item), lastNode);
+            if(existing != null && existing != lastNode) {
+                lastNode = existing;
+                ancestors.set(ancestors.size() - 1, existing);
+                if(recorder != null) {
+                    recorder.contention++;
+                }
+            }
+            if(existing == null) {
+                nodes++;
+            }
+            if(timed) {
+                phaseStart = recorder.phase(SearchMetrics.EXPAND, phaseStart);
+            }
 
             double loss = winner == FieldValue.EMPTY ? 0.5 : 0;
             double whiteScore = (winner == FieldValue.WHITE ? 1 : loss);
             double blackScore = (winner == FieldValue.BLACK ? 1 : loss);
             update(ancestors, blackScore, whiteScore);
+            //a leaf that was visited before only is a leaf when all its children are proven
+            if(solver && (lastNode.item.isFinished() || existing != null)) {
+                solve(tree, ancestors);
+            }
+            if(implicit > 0) {
+                updateMinimax(ancestors);
+            }
+            if(played != null) {
+                updateAmaf(ancestors, moves, played, whiteScore, blackScore);
+            }
+            if(timed) {
+                recorder.phase(SearchMetrics.BACKPROPAGATE, phaseStart);
+            }
+            if(recorder != null) {
+                recorder.depth(ancestors.size() - 1);
+                recorder.simulations++;
+            }
             simulations++;
         }
-        this.simulationCount.addAndGet(simulations);
+        this.simulationCount.addAndGet((int)(simulations - counted));
+        if(recorder != null) {
+            recorder.nodes = nodes;
+            collecting.add(recorder);
+        }
+        if(iteration != null) {
+            iteration.end();
+            if(iteration.shouldCommit()) {
+                iteration.algorithm = "mcts";
+                iteration.depth = biggestDepth;
+                iteration.simulations = simulations;
+                iteration.nodes = nodes;
+                iteration.completed = root.proven != Node.UNKNOWN;
+                iteration.commit();
+            }
+        }
     }
 
-    public ConcurrentHashMap<Board, Node<Board>> getNodes(FieldValue color) {
-        if(color == FieldValue.BLACK) {
-            return nodesBlack;
-        } else {
-            return nodesWhite;
+    //null when the position has not been visited with this color to move
+    public Node<Board> getNode(Board board, FieldValue color) {
+        return getNode(tree, board, color);
+    }
+
+    private Node<Board> getNode(SearchTree tree, Board board, FieldValue color) {
+        return tree.getNodes(color).get(key(board));
+    }
+
+    //nodes in the shared tree, or in all private trees of a root parallel search
+    public int treeSize() {
+        if(parallel == SHARED) {
+            return tree.size();
+        }
+        int size = 0;
+        for(SearchTree own : finishedTrees()) {
+            size += own.size();
+        }
+        return size;
+    }
+
+    //the sums of all trees go into the shared tree, a proof of any tree holds for all of them
+    //a worker that outlived the wait for the workers can still add its tree
+    private List<SearchTree> finishedTrees() {
+        synchronized(privateTrees) {
+            return new ArrayList<SearchTree>(privateTrees);
         }
     }
 
-    private void selectAndExpand(List<Node<Board>> ancestors) {
+    private void mergePrivateTrees() {
+        FieldValue opponent = rootNode.color.getOpponent();
+        List<SearchTree> finished = finishedTrees();
+        for(SearchTree own : finished) {
+            if(own.root.proven != Node.UNKNOWN) {
+                rootNode.proven = own.root.proven;
+            }
+        }
+        for(Position position : rootNode.item.getPossiblePositions(rootNode.color)) {
+            Board board = rootNode.item.makeMove(new Move(position, rootNode.color));
+            Node<Board> merged = null;
+            for(SearchTree own : finished) {
+                Node<Board> node = getNode(own, board, opponent);
+                if(node == null) {
+                    continue;
+                }
+                if(merged == null) {
+                    merged = new Node<Board>(board, opponent);
+                }
+                merged.plays += node.plays;
+                merged.score += node.score;
+                if(node.proven != Node.UNKNOWN) {
+                    merged.proven = node.proven;
+                }
+            }
+            if(merged != null) {
+                tree.getNodes(opponent).put(key(board), merged);
+            }
+        }
+    }
+
+    //the move most trees pick, on equal votes the one with the best summed score
+    private Move getVotedMove() {
+        Map<Position, Integer> votes = new HashMap<Position, Integer>();
+        for(SearchTree own : finishedTrees()) {
+            Move move = getBestMove(own);
+            if(move != null) {
+                votes.merge(new Position(move), 1, Integer::sum);
+            }
+        }
+        Move bestMove = getBestMove(tree);
+        int mostVotes = bestMove == null ? 0 : votes.getOrDefault(new Position(bestMove), 0);
+        for(Map.Entry<Position, Integer> entry : votes.entrySet()) {
+            if(entry.getValue() > mostVotes) {
+                mostVotes = entry.getValue();
+                bestMove = new Move(entry.getKey(), rootNode.color);
+            }
+        }
+        Node<Board> node = getNode(rootNode.item.makeMove(bestMove), rootNode.color.getOpponent());
+        if(node != null && node.plays > 0) {
+            lastValue = node.score / (double)node.plays;
+        }
+        return bestMove;
+    }
+
+    private Object key(Board board) {
+        if(symmetric && board instanceof uucki.game.reversi.Board) {
+            return BitBoard.canonicalHash((uucki.game.reversi.Board)board);
+        }
+        return board;
+    }
+
+    //moves gets the square of the move between every two ancestors, -1 for a pass
+    private void selectAndExpand(SearchTree tree, List<Node<Board>> ancestors, List<Integer> moves) {
         Node<Board> parent = ancestors.get(ancestors.size() - 1);
 
-        if(parent.item.isFinished()) {
+        if(parent.item.isFinished() || (active.depth > 0 && ancestors.size() > active.depth)) {
             return;
         }
 
-        List<Position> positions = parent.item.getPossiblePositions(parent.color);
         FieldValue opponentColor = parent.color == FieldValue.WHITE ? FieldValue.BLACK : FieldValue.WHITE;
 
-        List<Node<Board>> children = new ArrayList<Node<Board>>();
-        for(Position p : positions) {
-            Move move = new Move(p, parent.color);
-            Board b = parent.item.makeMove(move);
-            Node<Board> node = new Node<Board>(b, opponentColor);
-            if(getNodes(node.color).containsKey(node.item)) {
-                node = getNodes(node.color).get(node.item);
-                children.add(node);
-            } else {
-                //if it isn't in nodes, we have not visited this node yet.
-                //So we can use it.
-                ancestors.add(node);
-                return;
+        List<Node<Board>> children = parent.children;
+        if(children == null) {
+            List<Position> positions = parent.item.getPossiblePositions(parent.color);
+            children = new ArrayList<Node<Board>>();
+            for(Position p : positions) {
+                Move move = new Move(p, parent.color);
+                Board b = parent.item.makeMove(move);
+                Node<Board> node = getNode(tree, b, opponentColor);
+                if(node != null) {
+                    children.add(node);
+                } else {
+                    node = newNode(b, opponentColor);
+                    //if it isn't in nodes, we have not visited this node yet.
+                    //So we can use it.
+                    ancestors.add(node);
+                    moves.add(square(p));
+                    return;
+                }
+            }
+            //every child is known now, later visits do not have to make the moves again
+            if(children.size() > 0) {
+                int[] squares = new int[positions.size()];
+                for(int i = 0; i < squares.length; i++) {
+                    squares[i] = square(positions.get(i));
+                }
+                parent.childSquares = squares;
+                parent.children = children;
             }
         }
 
@@ -151,11 +523,13 @@ public class MonteCarloTreeSearch extends Algorithm implements Runnable {
         //so per othello rules the other player can go
         //this is represented by the same board as the parent, but for the opponent
         if(children.size() == 0) {
-            child = new Node<Board>(parent.item, opponentColor);
-            if(getNodes(child.color).containsKey(child.item)) {
-                child = getNodes(child.color).get(child.item);
-            } else {
-                ancestors.add(child);
+            child = getNode(tree, parent.item, opponentColor);
+            if(child != null && solver && child.proven != Node.UNKNOWN) {
+                return;
+            }
+            moves.add(-1);
+            if(child == null) {
+                ancestors.add(newNode(parent.item, opponentColor));
                 return;
             }
         } else {
@@ -165,14 +539,28 @@ public class MonteCarloTreeSearch extends Algorithm implements Runnable {
             double totalPlays = children.stream().mapToDouble(c -> c == null ? 0.0 : c.plays).reduce(0.0, (i, c) -> i + c);
             double logTotalPlays = Math.log(totalPlays);
             double oldScore = Double.NEGATIVE_INFINITY;
-            for(Node<Board> node : children) {
+            int childSquare = -1;
+            for(int i = 0; i < children.size(); i++) {
+                Node<Board> node = children.get(i);
+                int square = parent.childSquares[i];
+                if(solver && node.proven != Node.UNKNOWN) {
+                    continue;
+                }
                 if(uniformTopChoice && ancestors.size() == 1) {
                     if(child == null || node.plays < child.plays) {
                         child = node;
+                        childSquare = square;
                     }
                 } else {
                     double score = 0;
                     double X = node.score / (double)node.plays;
+                    if(rave > 0 && parent.amafPlays != null && parent.amafPlays[square] > 0) {
+                        double beta = Math.sqrt(rave / (3 * node.plays + rave));
+                        X = (1 - beta) * X + beta * parent.amafScore[square] / parent.amafPlays[square];
+                    }
+                    if(implicit > 0 && !Double.isNaN(node.minimax)) {
+                        X = (1 - implicit) * X + implicit * node.minimax;
+                    }
                     if(tuned) {
                         //UCB1-Tuned
                         //because X = {0,1} we can simplify the UCB1-tuned V formula by a lot
@@ -186,26 +574,73 @@ public class MonteCarloTreeSearch extends Algorithm implements Runnable {
                     if(child == null || score > oldScore) {
                         oldScore = score;
                         child = node;
+                        childSquare = square;
                     }
                 }
             }
+            //every child is proven, this node will be proven by solve
+            if(child == null) {
+                return;
+            }
+            moves.add(childSquare);
         }
         ancestors.add(child);
-        selectAndExpand(ancestors);
+        selectAndExpand(tree, ancestors, moves);
     }
 
-    private FieldValue simulate(Node<Board> node, int simulatedStrategy) {
+    private Node<Board> newNode(Board board, FieldValue color) {
+        Node<Board> node = new Node<Board>(board, color);
+        if((prior > 0 || implicit > 0) && board instanceof uucki.game.reversi.Board && !board.isFinished()) {
+            //the heuristic is for the player that made the move into the node
+            double value = 1 / (1 + Math.exp(-Basic.getValue(board, color.getOpponent()) / HEURISTIC_SCALE));
+            node.minimax = value;
+            node.plays = prior;
+            node.score = (int)Math.round(value * prior);
+        }
+        return node;
+    }
+
+    //the value of a node is the opposite of the best value of its children
+    private void updateMinimax(List<Node<Board>> ancestors) {
+        for(int i = ancestors.size() - 2; i >= 0; i--) {
+            Node<Board> node = ancestors.get(i);
+            List<Node<Board>> children = node.children;
+            if(children == null) {
+                continue;
+            }
+            double best = Double.NaN;
+            for(Node<Board> child : children) {
+                if(!Double.isNaN(child.minimax) && !(best >= child.minimax)) {
+                    best = child.minimax;
+                }
+            }
+            if(!Double.isNaN(best)) {
+                node.minimax = 1 - best;
+            }
+        }
+    }
+
+    //played, when given, gets the color that played each square
+    private FieldValue simulate(Node<Board> node, int simulatedStrategy, FieldValue[] played, SplittableRandom random) {
         Board board = node.item;
         FieldValue color = node.color;
         while(!board.isFinished()) {
-            board = makeRandomMove(board, color, simulatedStrategy);
+            Board next = makeRandomMove(board, color, simulatedStrategy, random);
+            if(played != null && next != board) {
+                for(int i = 0; i < next.board.length; i++) {
+                    if(board.board[i] != next.board[i] && (board.board[i] == null || board.board[i] == FieldValue.EMPTY)) {
+                        played[i] = color;
+                        break;
+                    }
+                }
+            }
+            board = next;
             color = color.getOpponent();
         }
-        simulationCount.incrementAndGet();
         return board.getWinner();
     }
 
-    private Board makeRandomMove(Board board, FieldValue color, int simulatedStrategy) {
+    private Board makeRandomMove(Board board, FieldValue color, int simulatedStrategy, SplittableRandom random) {
         List<Position> positions = board.getPossiblePositions(color);
         if (positions.size() == 0) {
             return board;
@@ -216,25 +651,30 @@ public class MonteCarloTreeSearch extends Algorithm implements Runnable {
         switch(simulatedStrategy) {
             default:
             case RANDOM:
-                randomPosition = positions.get(ThreadLocalRandom.current().nextInt(positions.size()));
+                randomPosition = positions.get(random.nextInt(positions.size()));
                 break;
             case CORNERS:
                 Optional<Position> cornerMove = positions.stream().filter(p -> p.isCorner()).findAny();
                 if(cornerMove.isPresent()) {
                     randomPosition = cornerMove.get();
                 } else {
-                    randomPosition = positions.get(ThreadLocalRandom.current().nextInt(positions.size()));
+                    randomPosition = positions.get(random.nextInt(positions.size()));
                 }
                 break;
             case WEIGHTED:
+                //weights only exist for reversi boards
+                if(!(board instanceof uucki.game.reversi.Board)) {
+                    randomPosition = positions.get(random.nextInt(positions.size()));
+                    break;
+                }
                 uucki.game.reversi.Board b = (uucki.game.reversi.Board)board;
                 double sumWeights = positions.stream().mapToDouble(p -> b.getWeight(p)).sum();
-                double random = ThreadLocalRandom.current().nextDouble() * sumWeights;
+                double pick = random.nextDouble() * sumWeights;
 
                 double edge = 0;
                 for(Position p : positions) {
                     edge += b.getWeight(p);
-                    if(random <= edge) {
+                    if(pick <= edge) {
                         randomPosition = p;
                         break;
                     }
@@ -260,37 +700,149 @@ public class MonteCarloTreeSearch extends Algorithm implements Runnable {
         }
     }
 
-    public HashMap<Position, Double> getMoveProbability() {
-        HashMap<Position, Double> probabilities = new HashMap<Position, Double>();
-        if(currentBoard == null) {
-            return probabilities;
+    //proves the leaf and its ancestors as far as possible
+    private void solve(SearchTree tree, List<Node<Board>> ancestors) {
+        for(int i = ancestors.size() - 1; i >= 0; i--) {
+            Node<Board> node = ancestors.get(i);
+            if(node.proven == Node.UNKNOWN) {
+                node.proven = node.item.isFinished() ? proveFinished(node) : proveFromChildren(tree, node);
+            }
+            if(node.proven == Node.UNKNOWN) {
+                return;
+            }
         }
+    }
 
-        double sumScores = 0;
-        List<Position> positions = currentBoard.getPossiblePositions(currentColor);
-        for(Position position : positions) {
-            Move newMove = new Move(position, currentColor);
-            Board board = currentBoard.makeMove(newMove);
-            Node<Board> newNode = getNodes(currentColor.getOpponent()).get(board);
-            double score = 0;
-            if(newNode != null) {
-                score = newNode.score/ (double)newNode.plays;
-                System.out.println(newNode.plays);
+    private int proveFinished(Node<Board> node) {
+        FieldValue winner = node.item.getWinner();
+        if(winner == FieldValue.EMPTY) {
+            return Node.DRAW;
+        }
+        return winner == node.color.getOpponent() ? Node.WIN : Node.LOSS;
+    }
+
+    /*
+     * The player to move wins if one move is a proven win for them, it is a draw or a loss
+     * when every move is proven. Proofs of the children are for the player to move.
+     */
+    private int proveFromChildren(SearchTree tree, Node<Board> node) {
+        FieldValue opponentColor = node.color.getOpponent();
+        List<Board> boards = new ArrayList<Board>();
+        for(Position position : node.item.getPossiblePositions(node.color)) {
+            boards.add(node.item.makeMove(new Move(position, node.color)));
+        }
+        if(boards.isEmpty()) {
+            boards.add(node.item);
+        }
+
+        boolean allProven = true;
+        boolean draw = false;
+        for(Board board : boards) {
+            Node<Board> child = getNode(tree, board, opponentColor);
+            if(child == null || child.proven == Node.UNKNOWN) {
+                allProven = false;
+            } else if(child.proven == Node.WIN) {
+                return Node.LOSS;
+            } else if(child.proven == Node.DRAW) {
+                draw = true;
             }
-            sumScores += score;
+        }
+        if(!allProven) {
+            return Node.UNKNOWN;
+        }
+        return draw ? Node.DRAW : Node.WIN;
+    }
 
-            probabilities.put(position, score);
-            System.out.println(score);
+    /*
+     * Every ancestor gets, for each square its color played later in this simulation,
+     * in the tree or in the playout, the result for its color as if that move was played first.
+     */
+    private void updateAmaf(List<Node<Board>> ancestors, List<Integer> moves, FieldValue[] played, double whiteScore, double blackScore) {
+        for(int i = ancestors.size() - 1; i >= 0; i--) {
+            Node<Board> node = ancestors.get(i);
+            if(i < moves.size() && moves.get(i) >= 0) {
+                played[moves.get(i)] = node.color;
+            }
+            float result = (float)(node.color == FieldValue.WHITE ? whiteScore : blackScore);
+            synchronized(node) {
+                if(node.amafPlays == null) {
+                    node.amafPlays = new int[played.length];
+                    node.amafScore = new float[played.length];
+                }
+                for(int square = 0; square < played.length; square++) {
+                    if(played[square] == node.color) {
+                        node.amafPlays[square]++;
+                        node.amafScore[square] += result;
+                    }
+                }
+            }
         }
+    }
 
-        //normalize to 100%
-        final double sumScoresFinal = sumScores;
-        probabilities.replaceAll((k,v) -> v / sumScoresFinal);
+    private static int square(Position position) {
+        return position.row * Board.COLUMN_COUNT + position.column;
+    }
 
-        return probabilities;
+    public HashMap<Position, Double> getMoveProbability() {
+        return new HashMap<Position, Double>(snapshot.getProbabilities());
     }
 
-    private Move getBestMove(Node<Board> node) {
+    //the root statistics of the running or last search, a new snapshot is made every
+    //update interval or more often, reading it does not touch the tree
+    public RootSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    //once the root is fully expanded its children are read from its cache, without making moves
+    private RootSnapshot snapshot(SearchTree tree, long time) {
+        Node<Board> root = tree.root;
+        List<Node<Board>> children = root.children;
+        int[] squares = root.childSquares;
+        if(children != null && squares != null) {
+            Position[] positions = new Position[children.size()];
+            int[] plays = new int[children.size()];
+            double[] values = new double[children.size()];
+            for(int i = 0; i < positions.length; i++) {
+                Node<Board> node = children.get(i);
+                positions[i] = new Position(squares[i] / Board.COLUMN_COUNT, squares[i] % Board.COLUMN_COUNT);
+                plays[i] = node.plays;
+                values[i] = node.plays > 0 ? node.score / (double)node.plays : Double.NaN;
+            }
+            return new RootSnapshot(positions, plays, values, time);
+        }
+        List<Position> moves = root.item.getPossiblePositions(root.color);
+        Position[] positions = moves.toArray(new Position[moves.size()]);
+        int[] plays = new int[positions.length];
+        double[] values = new double[positions.length];
+        for(int i = 0; i < positions.length; i++) {
+            Node<Board> node = getNode(tree, root.item.makeMove(new Move(positions[i], root.color)), root.color.getOpponent());
+            plays[i] = node == null ? 0 : node.plays;
+            values[i] = node == null || node.plays == 0 ? Double.NaN : node.score / (double)node.plays;
+        }
+        return new RootSnapshot(positions, plays, values, time);
+    }
+
+    //moves the book knows start with its win rate, as if they were played at most BOOK_PRIOR_PLAYS times
+    private void seedFromBook(SearchTree tree) {
+        if(book == null) {
+            return;
+        }
+        FieldValue opponent = rootNode.color.getOpponent();
+        for(Position position : rootNode.item.getPossiblePositions(rootNode.color)) {
+            Board board = rootNode.item.makeMove(new Move(position, rootNode.color));
+            OpeningBook.Entry entry = book.get(board, opponent);
+            if(entry == null || entry.plays == 0 || getNode(tree, board, opponent) != null) {
+                continue;
+            }
+            Node<Board> node = new Node<Board>(board, opponent);
+            node.plays = Math.min(entry.plays, BOOK_PRIOR_PLAYS);
+            node.score = (int)Math.round(entry.score / entry.plays * node.plays);
+            tree.getNodes(opponent).put(key(board), node);
+        }
+    }
+
+    private Move getBestMove(SearchTree tree) {
+        Node<Board> node = tree.root;
         List<Position> positions = node.item.getPossiblePositions(node.color);
         Move move = null;
         double score = Integer.MIN_VALUE;
@@ -298,19 +850,20 @@ public class MonteCarloTreeSearch extends Algorithm implements Runnable {
             Move newMove = new Move(position, node.color);
 
             Board board = node.item.makeMove(newMove);
-            try{
-                Node<Board> newNode = getNodes(node.color.getOpponent()).get(board);
-            double newScore = (double)newNode.score / (double)newNode.plays;
-            if(move == null || newScore >= score) {
+            Node<Board> newNode = getNode(tree, board, node.color.getOpponent());
+            //with a very small budget not every move has been tried
+            if(newNode == null || newNode.plays == 0) {
+                if(move == null) {
+                    move = newMove;
+                }
+                continue;
+            }
+            //a proven win beats every sampled score, a proven loss loses to all of them
+            double newScore = value(newNode);
+            if(newScore >= score) {
                 score = newScore;
                 move = newMove;
-            }
-            } catch (Exception e) {
-                System.out.println(getMoveProbability());
-                System.out.println(simulationCount.get());
-                rootNode.item.print();
-                System.out.println(((uucki.game.fourinarow.Board)rootNode.item).lastMove);
-                System.exit(0);
+                lastValue = Math.max(0, Math.min(1, newScore));
             }
         }
 
@@ -327,10 +880,138 @@ public class MonteCarloTreeSearch extends Algorithm implements Runnable {
         return hasCornerMove;
     }
 
+    protected SearchUpdate progress(Move move, long time, boolean finished) {
+        List<Move> principalVariation = principalVariation(tree, move);
+        return new SearchUpdate(move, lastValue, principalVariation, simulationCount.get(), treeSize(), principalVariation.size(), time, finished);
+    }
+
+    //the move and after it the most played move of every position, as long as it was played
+    private List<Move> principalVariation(SearchTree tree, Move move) {
+        List<Move> moves = new ArrayList<Move>();
+        if(move == null || rootNode == null) {
+            return moves;
+        }
+        moves.add(move);
+        Board board = rootNode.item.makeMove(move);
+        FieldValue color = rootNode.color.getOpponent();
+        while(!board.isFinished() && moves.size() < PRINCIPAL_VARIATION_LENGTH) {
+            List<Position> positions = board.getPossiblePositions(color);
+            if(positions.size() == 0) {
+                Node<Board> pass = getNode(tree, board, color.getOpponent());
+                if(pass == null || pass.plays == 0) {
+                    break;
+                }
+                moves.add(null);
+                color = color.getOpponent();
+                continue;
+            }
+            Move bestMove = null;
+            Board bestBoard = null;
+            int mostPlays = 0;
+            for(Position position : positions) {
+                Move next = new Move(position, color);
+                Board nextBoard = board.makeMove(next);
+                Node<Board> node = getNode(tree, nextBoard, color.getOpponent());
+                if(node != null && node.plays > mostPlays) {
+                    mostPlays = node.plays;
+                    bestMove = next;
+                    bestBoard = nextBoard;
+                }
+            }
+            if(bestMove == null) {
+                break;
+            }
+            moves.add(bestMove);
+            board = bestBoard;
+            color = color.getOpponent();
+        }
+        return moves;
+    }
+
+    public String toString() {
+        return "mcts,c=" + c + ",strategy=" + AlgorithmConfig.STRATEGIES[simulatedStrategy] + ",threads=" + threads + "," + limits;
+    }
+
+    //true when the most played move is also the best and the others can not catch up with the
+    //simulations of the planned time that are left, or after the planned time when the best
+    //two moves are not close
+    private boolean decided(long elapsed, long moveTime) {
+        Node<Board> mostPlayed = null;
+        Node<Board> secondPlayed = null;
+        Node<Board> best = null;
+        Node<Board> secondBest = null;
+        FieldValue opponent = rootNode.color.getOpponent();
+        for(Position position : rootNode.item.getPossiblePositions(rootNode.color)) {
+            Node<Board> node = getNode(tree, rootNode.item.makeMove(new Move(position, rootNode.color)), opponent);
+            if(node == null || node.plays == 0) {
+                continue;
+            }
+            if(mostPlayed == null || node.plays > mostPlayed.plays) {
+                secondPlayed = mostPlayed;
+                mostPlayed = node;
+            } else if(secondPlayed == null || node.plays > secondPlayed.plays) {
+                secondPlayed = node;
+            }
+            if(best == null || value(node) > value(best)) {
+                secondBest = best;
+                best = node;
+            } else if(secondBest == null || value(node) > value(secondBest)) {
+                secondBest = node;
+            }
+        }
+        if(secondPlayed == null) {
+            return elapsed >= moveTime;
+        }
+        if(best.proven == Node.WIN) {
+            return true;
+        }
+        if(elapsed < moveTime) {
+            double simulationsLeft = simulationCount.get() / (double)Math.max(1, elapsed) * (moveTime - elapsed);
+            return mostPlayed == best && mostPlayed.plays - secondPlayed.plays > simulationsLeft;
+        }
+        return mostPlayed == best && value(best) - value(secondBest) >= CLOSE_VALUE;
+    }
+
+    //win rate for the player that moved into the node, proofs count more than any win rate
+    private double value(Node<Board> node) {
+        if(solver && node.proven != Node.UNKNOWN) {
+            return node.proven == Node.WIN ? 2 : node.proven == Node.LOSS ? -1 : 0.5;
+        }
+        return node.score / (double)node.plays;
+    }
+
+    //true when the position is in the tree, it is the root then
+    private boolean reuseTree(Board board, FieldValue color) {
+        Node<Board> node = parallel == SHARED ? getNode(tree, board, color) : null;
+        //with symmetric a transposed node can be in another orientation
+        if(node == null || !node.item.equals(board)) {
+            return false;
+        }
+        TreeReuseEvent event = Events.treeReuseStarted();
+        int before = tree.size();
+        int stones = board.whites + board.blacks;
+        tree.getNodes(FieldValue.WHITE).values().removeIf(n -> n.item.whites + n.item.blacks < stones);
+        tree.getNodes(FieldValue.BLACK).values().removeIf(n -> n.item.whites + n.item.blacks < stones);
+        rootNode = node;
+        tree.root = node;
+        if(event != null) {
+            event.end();
+            if(event.shouldCommit()) {
+                event.nodesBefore = before;
+                event.nodesAfter = tree.size();
+                event.rootPlays = node.plays;
+                event.emptyFields = board.emptyFields();
+                event.commit();
+            }
+        }
+        return true;
+    }
+
     public void cleanup() {
-        currentBoard = null;
-        nodesBlack.clear();
-        nodesWhite.clear();
+        tree.clear();
+        synchronized(privateTrees) {
+            privateTrees.clear();
+        }
         simulationCount.set(0);
     }
 }
@@ -0,0 +1,70 @@
+package uucki.algorithm;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import uucki.type.Position;
+
+/*
+ * The plays and win rates of the moves of the root of an MCTS search at one moment. The
+ * search makes a new one now and then, a snapshot itself never changes, so it can be read
+ * from any thread without locks. Win rates are for the player to move at the root, NaN for
+ * a move that was not played yet.
+ */
+public class RootSnapshot {
+
+    public final static RootSnapshot EMPTY = new RootSnapshot(new Position[0], new int[0], new double[0], 0);
+
+    private final Position[] positions;
+    private final int[] plays;
+    private final double[] values;
+    private final int totalPlays;
+    //milliseconds since the search started
+    public final long time;
+
+    RootSnapshot(Position[] positions, int[] plays, double[] values, long time) {
+        this.positions = positions;
+        this.plays = plays;
+        this.values = values;
+        this.time = time;
+        int total = 0;
+        for(int p : plays) {
+            total += p;
+        }
+        this.totalPlays = total;
+    }
+
+    public int size() {
+        return positions.length;
+    }
+
+    public Position getPosition(int move) {
+        return positions[move];
+    }
+
+    public int getPlays(int move) {
+        return plays[move];
+    }
+
+    public double getValue(int move) {
+        return values[move];
+    }
+
+    public int getTotalPlays() {
+        return totalPlays;
+    }
+
+    //the win rates of the moves, together 1
+    public Map<Position, Double> getProbabilities() {
+        Map<Position, Double> probabilities = new HashMap<Position, Double>();
+        double sum = 0;
+        for(int i = 0; i < positions.length; i++) {
+            double value = Double.isNaN(values[i]) ? 0 : values[i];
+            probabilities.put(positions[i], value);
+            sum += value;
+        }
+        final double total = sum;
+        probabilities.replaceAll((position, value) -> total > 0 ? value / total : 0);
+        return probabilities;
+    }
+}
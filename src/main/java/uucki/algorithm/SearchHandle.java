@@ -0,0 +1,78 @@
+package uucki.algorithm;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.function.Consumer;
+
+/*
+ * A search that runs in the background, see Algorithm.start. Listeners get an update every
+ * time the search has a better idea of its move, moveNow ends the search early with the best
+ * move so far and cancel ends it without a result.
+ * Listeners are called on the thread of the search, so they should return quickly.
+ */
+public class SearchHandle {
+
+    private Algorithm algorithm = null;
+    private List<Consumer<SearchUpdate>> listeners = new CopyOnWriteArrayList<Consumer<SearchUpdate>>();
+    private CompletableFuture<SearchUpdate> result = new CompletableFuture<SearchUpdate>();
+    private CountDownLatch end = new CountDownLatch(1);
+
+    SearchHandle(Algorithm algorithm) {
+        this.algorithm = algorithm;
+    }
+
+    public SearchHandle onUpdate(Consumer<SearchUpdate> listener) {
+        listeners.add(listener);
+        return this;
+    }
+
+    //completes with the last update when the search is done
+    public CompletableFuture<SearchUpdate> result() {
+        return result;
+    }
+
+    public void moveNow() {
+        algorithm.stop(this);
+    }
+
+    //result() is cancelled right away, the thread of the search stops as soon as it can.
+    //The next start of the algorithm waits for that
+    public void cancel() {
+        result.cancel(false);
+        algorithm.stop(this);
+    }
+
+    public boolean isDone() {
+        return result.isDone();
+    }
+
+    //waits until the thread of the search is done, a cancelled search can still be running
+    //after result() was completed
+    public void awaitEnd() throws InterruptedException {
+        end.await();
+    }
+
+    void update(SearchUpdate update) {
+        for(Consumer<SearchUpdate> listener : listeners) {
+            listener.accept(update);
+        }
+    }
+
+    void finish(SearchUpdate update) {
+        if(result.isCancelled()) {
+            return;
+        }
+        update(update);
+        result.complete(update);
+    }
+
+    void fail(Throwable e) {
+        result.completeExceptionally(e);
+    }
+
+    void ended() {
+        end.countDown();
+    }
+}
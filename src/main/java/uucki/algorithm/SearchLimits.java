@@ -0,0 +1,43 @@
+package uucki.algorithm;
+
+/*
+ * When a search stops, at the first limit it reaches. A limit of 0 is no limit.
+ * time: milliseconds, nodes: positions minimax visits or nodes MCTS adds to its tree,
+ * simulations: MCTS playouts, depth: iterative deepening depth of minimax or the
+ * depth of the MCTS tree.
+ * Without a time limit a search does the same work on every machine.
+ */
+public class SearchLimits {
+
+    //the clock is read once every so many nodes or simulations
+    public final static int NODE_CHECK_INTERVAL = 1024;
+    public final static int SIMULATION_CHECK_INTERVAL = 16;
+
+    public long time = 0;
+    public long nodes = 0;
+    public long simulations = 0;
+    public int depth = 0;
+
+    public SearchLimits() {
+
+    }
+
+    public SearchLimits(long time) {
+        this.time = time;
+    }
+
+    public SearchLimits(SearchLimits limits) {
+        this.time = limits.time;
+        this.nodes = limits.nodes;
+        this.simulations = limits.simulations;
+        this.depth = limits.depth;
+    }
+
+    public long deadline(long startTime) {
+        return time > 0 ? startTime + time : Long.MAX_VALUE;
+    }
+
+    public String toString() {
+        return "time=" + time + ",nodes=" + nodes + ",simulations=" + simulations + ",depth=" + depth;
+    }
+}
@@ -0,0 +1,189 @@
+package uucki.algorithm;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/*
+ * What one search did: the amount of work, how deep and big the tree got, how often
+ * workers added the same node at the same time (contention) and how long the phases of
+ * an MCTS simulation take. Every worker counts in its own Recorder, the recorders are added
+ * up when the worker is done. Phases are timed every SAMPLE_INTERVAL simulations, into
+ * histograms with buckets of powers of two nanoseconds.
+ * select: walking down the tree to a new leaf, simulate: the playout, expand: adding the
+ * leaf to the tree, backpropagate: updating the statistics and proofs of the path.
+ */
+public class SearchMetrics {
+
+    public final static int SELECT = 0;
+    public final static int EXPAND = 1;
+    public final static int SIMULATE = 2;
+    public final static int BACKPROPAGATE = 3;
+    public final static String[] PHASES = new String[]{"select", "expand", "simulate", "backpropagate"};
+
+    public final static int SAMPLE_INTERVAL = 64;
+    public final static int BUCKETS = 40;
+
+    public final static String CSV_HEADER = "time,simulations,nodes,simulations/sec,nodes/sec,tree size,max depth,average depth,contention"
+        + ",select mean,select p50,select p99,expand mean,expand p50,expand p99"
+        + ",simulate mean,simulate p50,simulate p99,backpropagate mean,backpropagate p50,backpropagate p99";
+
+    private static Map<String, BufferedWriter> files = new HashMap<String, BufferedWriter>();
+
+    //milliseconds
+    public long time = 0;
+    public long simulations = 0;
+    //positions minimax visited, or nodes MCTS added to its tree
+    public long nodes = 0;
+    public long treeSize = 0;
+    public int maxDepth = 0;
+    public long depthSum = 0;
+    public long contention = 0;
+    public long[][] histograms = new long[PHASES.length][BUCKETS];
+    public long[] phaseTime = new long[PHASES.length];
+
+    //the counts of one worker, only that worker writes to it
+    public static class Recorder {
+        public long simulations = 0;
+        public long nodes = 0;
+        public int maxDepth = 0;
+        public long depthSum = 0;
+        public long contention = 0;
+        private long[][] histograms = new long[PHASES.length][BUCKETS];
+        private long[] phaseTime = new long[PHASES.length];
+
+        //true when the phases of the coming simulation are timed
+        public boolean sample() {
+            return simulations % SAMPLE_INTERVAL == 0;
+        }
+
+        public void depth(int depth) {
+            depthSum += depth;
+            maxDepth = Math.max(maxDepth, depth);
+        }
+
+        //the phase ran from start until now, returns now so it is the start of the next phase
+        public long phase(int phase, long start) {
+            long now = System.nanoTime();
+            long nanos = now - start;
+            histograms[phase][bucket(nanos)]++;
+            phaseTime[phase] += nanos;
+            return now;
+        }
+    }
+
+    public synchronized void add(Recorder recorder) {
+        simulations += recorder.simulations;
+        nodes += recorder.nodes;
+        maxDepth = Math.max(maxDepth, recorder.maxDepth);
+        depthSum += recorder.depthSum;
+        contention += recorder.contention;
+        for(int phase = 0; phase < PHASES.length; phase++) {
+            phaseTime[phase] += recorder.phaseTime[phase];
+            for(int bucket = 0; bucket < BUCKETS; bucket++) {
+                histograms[phase][bucket] += recorder.histograms[phase][bucket];
+            }
+        }
+    }
+
+    private static int bucket(long nanos) {
+        return Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(Math.max(0, nanos)));
+    }
+
+    public double simulationsPerSecond() {
+        return time > 0 ? simulations * 1000.0 / time : 0;
+    }
+
+    public double nodesPerSecond() {
+        return time > 0 ? nodes * 1000.0 / time : 0;
+    }
+
+    //minimax counts its completed depth once
+    public double averageDepth() {
+        long searches = simulations > 0 ? simulations : 1;
+        return depthSum / (double)searches;
+    }
+
+    public long samples(int phase) {
+        long samples = 0;
+        for(long count : histograms[phase]) {
+            samples += count;
+        }
+        return samples;
+    }
+
+    //nanoseconds
+    public double mean(int phase) {
+        long samples = samples(phase);
+        return samples > 0 ? phaseTime[phase] / (double)samples : 0;
+    }
+
+    //nanoseconds, the upper end of the bucket the percentile falls in
+    public long percentile(int phase, double percentile) {
+        long samples = samples(phase);
+        long seen = 0;
+        for(int bucket = 0; bucket < BUCKETS; bucket++) {
+            seen += histograms[phase][bucket];
+            if(samples > 0 && seen >= percentile * samples) {
+                return 1L << bucket;
+            }
+        }
+        return 0;
+    }
+
+    public String toCsv() {
+        StringBuilder line = new StringBuilder();
+        line.append(time).append(',').append(simulations).append(',').append(nodes).append(',')
+            .append(simulationsPerSecond()).append(',').append(nodesPerSecond()).append(',')
+            .append(treeSize).append(',').append(maxDepth).append(',').append(averageDepth()).append(',').append(contention);
+        for(int phase = 0; phase < PHASES.length; phase++) {
+            line.append(',').append(mean(phase)).append(',').append(percentile(phase, 0.5)).append(',').append(percentile(phase, 0.99));
+        }
+        return line.toString();
+    }
+
+    public String toJson() {
+        StringBuilder json = new StringBuilder();
+        json.append("{\"time\":").append(time).append(",\"simulations\":").append(simulations).append(",\"nodes\":").append(nodes)
+            .append(",\"simulationsPerSecond\":").append(simulationsPerSecond()).append(",\"nodesPerSecond\":").append(nodesPerSecond())
+            .append(",\"treeSize\":").append(treeSize).append(",\"maxDepth\":").append(maxDepth).append(",\"averageDepth\":").append(averageDepth())
+            .append(",\"contention\":").append(contention).append(",\"phases\":{");
+        for(int phase = 0; phase < PHASES.length; phase++) {
+            json.append(phase > 0 ? "," : "").append('"').append(PHASES[phase]).append("\":{\"samples\":").append(samples(phase))
+                .append(",\"mean\":").append(mean(phase)).append(",\"histogram\":[");
+            for(int bucket = 0; bucket < BUCKETS; bucket++) {
+                json.append(bucket > 0 ? "," : "").append(histograms[phase][bucket]);
+            }
+            json.append("]}");
+        }
+        return json.append("}}").toString();
+    }
+
+    //appends a line to the file, json lines when it ends in .json and csv otherwise,
+    //all algorithms that write to the same path share one writer
+    public void append(String path) {
+        boolean json = path.endsWith(".json");
+        synchronized(files) {
+            try {
+                BufferedWriter out = files.get(path);
+                if(out == null) {
+                    boolean exists = new File(path).length() > 0;
+                    out = new BufferedWriter(new FileWriter(path, true));
+                    if(!exists && !json) {
+                        out.write(CSV_HEADER);
+                        out.newLine();
+                    }
+                    files.put(path, out);
+                }
+                out.write(json ? toJson() : toCsv());
+                out.newLine();
+                out.flush();
+            } catch (IOException e) {
+                System.out.println("Could not write metrics to " + path + ": " + e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package uucki.algorithm;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import uucki.game.Board;
+import uucki.type.FieldValue;
+import uucki.type.Node;
+
+/*
+ * The nodes of one MCTS tree by position, one map for every color to move.
+ * The shared tree of MonteCarloTreeSearch uses concurrent maps, the private trees
+ * of root parallel workers plain maps.
+ */
+class SearchTree {
+
+    Node<Board> root = null;
+    private Map<Object, Node<Board>> nodesBlack = null;
+    private Map<Object, Node<Board>> nodesWhite = null;
+
+    SearchTree(Node<Board> root, boolean concurrent) {
+        this.root = root;
+        nodesBlack = concurrent ? new ConcurrentHashMap<Object, Node<Board>>() : new HashMap<Object, Node<Board>>();
+        nodesWhite = concurrent ? new ConcurrentHashMap<Object, Node<Board>>() : new HashMap<Object, Node<Board>>();
+    }
+
+    Map<Object, Node<Board>> getNodes(FieldValue color) {
+        if(color == FieldValue.BLACK) {
+            return nodesBlack;
+        } else {
+            return nodesWhite;
+        }
+    }
+
+    int size() {
+        return nodesBlack.size() + nodesWhite.size();
+    }
+
+    void clear() {
+        nodesBlack.clear();
+        nodesWhite.clear();
+    }
+}
@@ -0,0 +1,40 @@
+package uucki.algorithm;
+
+import java.util.Collections;
+import java.util.List;
+
+import uucki.type.Move;
+
+/*
+ * The state of a search at one moment: the move it would play now, the value of the position
+ * for the color to move and the moves it expects to follow, starting with move, null for a pass.
+ * The last update of a search is its result and has finished set.
+ */
+public class SearchUpdate {
+
+    public final Move move;
+    public final double value;
+    public final List<Move> principalVariation;
+    public final long simulations;
+    public final long nodes;
+    //completed depth of minimax, length of the principal variation of MCTS
+    public final int depth;
+    //milliseconds since the search started
+    public final long time;
+    public final boolean finished;
+
+    public SearchUpdate(Move move, double value, List<Move> principalVariation, long simulations, long nodes, int depth, long time, boolean finished) {
+        this.move = move;
+        this.value = value;
+        this.principalVariation = Collections.unmodifiableList(principalVariation);
+        this.simulations = simulations;
+        this.nodes = nodes;
+        this.depth = depth;
+        this.time = time;
+        this.finished = finished;
+    }
+
+    public String toString() {
+        return "move=" + move + ",value=" + value + ",pv=" + principalVariation + ",simulations=" + simulations + ",nodes=" + nodes + ",depth=" + depth + ",time=" + time;
+    }
+}
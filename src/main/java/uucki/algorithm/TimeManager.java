@@ -0,0 +1,69 @@
+package uucki.algorithm;
+
+import uucki.game.Board;
+
+/*
+ * Divides a game clock over the moves of a game: the remaining clock is shared by the moves
+ * the player still has to make, the middle game gets more than the opening, and every move
+ * also gets the increment. A search plans to use moveTime, but may go on until maxTime when
+ * it can not decide between its best moves, or stop before moveTime when it has decided.
+ * All times in milliseconds.
+ */
+public class TimeManager {
+
+    //the middle game, where most games are decided, gets more than its share
+    public final static double OPENING = 0.6;
+    public final static double MIDDLE_GAME = 1.3;
+    public final static double END_GAME = 1.0;
+    //an extended search uses at most EXTENSION times its planned time and at most
+    //MAX_SHARE of the clock
+    public final static double EXTENSION = 2.5;
+    public final static double MAX_SHARE = 0.25;
+    //kept on the clock for the overhead of the moves
+    public final static long RESERVE = 50;
+
+    public long clock = 0;
+    public long increment = 0;
+
+    public TimeManager(long clock, long increment) {
+        this.clock = clock;
+        this.increment = increment;
+    }
+
+    public long moveTime(Board board) {
+        int movesLeft = Math.max(1, (board.emptyFields() + 1) / 2);
+        double planned = available() / (double)movesLeft * phase(board) + increment;
+        //the increment is only added after the move, so it can not be spent before
+        return Math.max(1, Math.min((long)planned, available()));
+    }
+
+    public long maxTime(Board board) {
+        long planned = moveTime(board);
+        long extended = Math.min((long)(planned * EXTENSION), Math.min((long)(available() * MAX_SHARE) + increment, available()));
+        return Math.max(planned, extended);
+    }
+
+    //the time a move took comes off the clock, the increment is added
+    public void used(long time) {
+        clock = clock - time + increment;
+    }
+
+    private long available() {
+        return Math.max(0, clock - RESERVE);
+    }
+
+    private static double phase(Board board) {
+        double empty = board.emptyFields() / (double)board.board.length;
+        if(empty > 0.75) {
+            return OPENING;
+        }
+        if(empty > 0.25) {
+            return MIDDLE_GAME;
+        }
+        return END_GAME;
+    }
+
+    public String toString() {
+        return "clock=" + clock + ",increment=" + increment;
+    }
+}
@@ -0,0 +1,43 @@
+package uucki.data;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/*
+ * Probabilistic set of 64 bit hashes that can be shared by threads without locks.
+ * add returns false for hashes that were (probably) added before.
+ */
+public class BloomFilter {
+
+    private AtomicLongArray bits = null;
+    private long size = 0;
+    private int hashes = 0;
+
+    //about 1% false positives at 10 bits per item
+    public BloomFilter(long expectedItems, int bitsPerItem) {
+        size = Math.max(64, expectedItems * bitsPerItem);
+        bits = new AtomicLongArray((int)((size + 63) / 64));
+        size = bits.length() * 64L;
+        hashes = Math.max(1, (int)Math.round(bitsPerItem * Math.log(2)));
+    }
+
+    public boolean add(long hash) {
+        //double hashing, the two halves of the hash make all the others
+        long h1 = hash & 0xFFFFFFFFL;
+        long h2 = hash >>> 32;
+        boolean added = false;
+        for(int i = 0; i < hashes; i++) {
+            long bit = Math.floorMod(h1 + i * h2, size);
+            int index = (int)(bit >>> 6);
+            long mask = 1L << bit;
+            long old = bits.get(index);
+            while((old & mask) == 0) {
+                if(bits.compareAndSet(index, old, old | mask)) {
+                    added = true;
+                    break;
+                }
+                old = bits.get(index);
+            }
+        }
+        return added;
+    }
+}
@@ -0,0 +1,56 @@
+package uucki.data;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+
+/*
+ * Start of every binary data file: magic, version, what kind of records follow,
+ * the game and the settings of the search that made the data.
+ */
+public class DataHeader {
+
+    public final static int MAGIC = 0x55554B44; //"UUKD"
+    public final static int VERSION = 1;
+
+    public final static int POSITIONS = 1;
+    public final static int GAMES = 2;
+    public final static int BOOK = 3;
+
+    public int kind = POSITIONS;
+    public String game = null;
+    public String settings = null;
+
+    public DataHeader(int kind, String game, String settings) {
+        this.kind = kind;
+        this.game = game;
+        this.settings = settings;
+    }
+
+    public void write(DataOutputStream out) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeByte(VERSION);
+        out.writeByte(kind);
+        out.writeUTF(game);
+        out.writeUTF(settings);
+    }
+
+    public static DataHeader read(DataInputStream in, int expectedKind) throws IOException {
+        if(in.readInt() != MAGIC) {
+            throw new IOException("Not a data file");
+        }
+        int version = in.readUnsignedByte();
+        if(version != VERSION) {
+            throw new IOException("Unsupported version: " + version);
+        }
+        DataHeader header = new DataHeader(in.readUnsignedByte(), in.readUTF(), in.readUTF());
+        if(header.kind != expectedKind) {
+            throw new IOException("Expected records of kind " + expectedKind + " but found " + header.kind);
+        }
+        return header;
+    }
+
+    //size in bytes, records start right after the header
+    public int length() {
+        return 4 + 1 + 1 + 2 + game.getBytes(StandardCharsets.UTF_8).length + 2 + settings.getBytes(StandardCharsets.UTF_8).length;
+    }
+}
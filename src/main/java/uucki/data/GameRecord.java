@@ -0,0 +1,104 @@
+package uucki.data;
+
+import uucki.game.Board;
+import uucki.game.Games;
+import uucki.type.FieldValue;
+import uucki.type.Move;
+
+import java.util.*;
+
+/*
+ * A finished game as the sequence of moves that were played, white moves first.
+ * Moves are stored as square numbers (row * columns + column), PASS when a player could not move.
+ */
+public class GameRecord {
+
+    public final static int PASS = 255;
+
+    public String game = Games.REVERSI;
+    public long seed = 0;
+    public FieldValue winner = FieldValue.EMPTY;
+    public int[] moves = null;
+
+    public GameRecord(String game, long seed, FieldValue winner, int[] moves) {
+        this.game = game;
+        this.seed = seed;
+        this.winner = winner;
+        this.moves = moves;
+    }
+
+    public GameRecord(String game, long seed, FieldValue winner, List<Move> moves) {
+        this(game, seed, winner, new int[moves.size()]);
+        int columns = Games.columns(game);
+        for(int i = 0; i < moves.size(); i++) {
+            Move move = moves.get(i);
+            this.moves[i] = move == null ? PASS : move.row * columns + move.column;
+        }
+    }
+
+    //the color that made the i-th move
+    public static FieldValue colorOf(int i) {
+        return i % 2 == 0 ? FieldValue.WHITE : FieldValue.BLACK;
+    }
+
+    public Move getMove(int i) {
+        if(moves[i] == PASS) {
+            return null;
+        }
+        int columns = Games.columns(game);
+        return new Move(moves[i] / columns, moves[i] % columns, colorOf(i));
+    }
+
+    //all positions of the game, the i-th board is the one on which the i-th move was made
+    public List<Board> positions() {
+        List<Board> boards = new ArrayList<Board>(moves.length + 1);
+        Board board = Games.initialBoard(game);
+        boards.add(board);
+        for(int i = 0; i < moves.length; i++) {
+            Move move = getMove(i);
+            if(move != null) {
+                board = board.makeMove(move);
+            }
+            boards.add(board);
+        }
+        return boards;
+    }
+
+    //e.g. "reversi 12 W f5d6--c3", moves in column letter + row number
+    public String toLine() {
+        StringBuilder builder = new StringBuilder();
+        builder.append(game).append(' ').append(seed).append(' ').append(winner == FieldValue.EMPTY ? "-" : winner.toString()).append(' ');
+        int columns = Games.columns(game);
+        for(int move : moves) {
+            if(move == PASS) {
+                builder.append("--");
+            } else {
+                builder.append((char)('a' + move % columns)).append(move / columns + 1);
+            }
+        }
+        return builder.toString();
+    }
+
+    public static GameRecord parse(String line) {
+        String[] parts = line.split(" ");
+        if(parts.length < 3) {
+            throw new IllegalArgumentException("Invalid game record: " + line);
+        }
+        FieldValue winner = FieldValue.EMPTY;
+        if(parts[2].equals("W")) {
+            winner = FieldValue.WHITE;
+        } else if(parts[2].equals("B")) {
+            winner = FieldValue.BLACK;
+        }
+
+        String moveText = parts.length > 3 ? parts[3] : "";
+        int[] moves = new int[moveText.length() / 2];
+        int columns = Games.columns(parts[0]);
+        for(int i = 0; i < moves.length; i++) {
+            char column = moveText.charAt(i * 2);
+            char row = moveText.charAt(i * 2 + 1);
+            moves[i] = column == '-' ? PASS : (row - '1') * columns + (column - 'a');
+        }
+        return new GameRecord(parts[0], Long.parseLong(parts[1]), winner, moves);
+    }
+}
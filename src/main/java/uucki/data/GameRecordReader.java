@@ -0,0 +1,63 @@
+package uucki.data;
+
+import uucki.type.FieldValue;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.*;
+
+public class GameRecordReader implements Closeable {
+
+    private DataInputStream in = null;
+    private DataHeader header = null;
+
+    public GameRecordReader(File file) throws IOException {
+        in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 1 << 16));
+        header = DataHeader.read(in, DataHeader.GAMES);
+    }
+
+    public DataHeader getHeader() {
+        return header;
+    }
+
+    //returns null at the end of the file
+    public GameRecord next() throws IOException {
+        long seed = 0;
+        try {
+            seed = in.readLong();
+        } catch (EOFException e) {
+            return null;
+        }
+        FieldValue winner = FieldValue.values()[in.readUnsignedByte()];
+        int[] moves = new int[in.readUnsignedShort()];
+        for(int i = 0; i < moves.length; i++) {
+            moves[i] = in.readUnsignedByte();
+        }
+        return new GameRecord(header.game, seed, winner, moves);
+    }
+
+    //reads binary files (.bin) and the text format of GameRecord.toLine
+    public static List<GameRecord> readAll(File file) throws IOException {
+        List<GameRecord> records = new ArrayList<GameRecord>();
+        if(file.getName().endsWith(".bin")) {
+            try (GameRecordReader reader = new GameRecordReader(file)) {
+                GameRecord record = null;
+                while((record = reader.next()) != null) {
+                    records.add(record);
+                }
+            }
+        } else {
+            for(String line : Files.readAllLines(file.toPath(), StandardCharsets.UTF_8)) {
+                if(!line.isEmpty()) {
+                    records.add(GameRecord.parse(line));
+                }
+            }
+        }
+        return records;
+    }
+
+    public void close() throws IOException {
+        in.close();
+    }
+}
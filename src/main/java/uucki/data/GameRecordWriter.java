@@ -0,0 +1,29 @@
+package uucki.data;
+
+import java.io.*;
+
+/*
+ * Games as: seed (long), winner (byte), number of moves (short), one byte per move.
+ */
+public class GameRecordWriter implements Closeable {
+
+    private DataOutputStream out = null;
+
+    public GameRecordWriter(File file, String game, String settings) throws IOException {
+        out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 1 << 16));
+        new DataHeader(DataHeader.GAMES, game, settings).write(out);
+    }
+
+    public synchronized void write(GameRecord record) throws IOException {
+        out.writeLong(record.seed);
+        out.writeByte(record.winner.ordinal());
+        out.writeShort(record.moves.length);
+        for(int move : record.moves) {
+            out.writeByte(move);
+        }
+    }
+
+    public synchronized void close() throws IOException {
+        out.close();
+    }
+}
@@ -0,0 +1,67 @@
+package uucki.data;
+
+import uucki.game.Board;
+import uucki.game.Games;
+import uucki.game.reversi.BitBoard;
+import uucki.type.FieldValue;
+
+import java.io.*;
+
+/*
+ * A board as two bit masks (bit row * columns + column), the side to move and a label,
+ * e.g. a heuristic value or search result for that side.
+ */
+public class LabelledPosition {
+
+    //black mask, white mask, side to move, label
+    public final static int BYTES = 8 + 8 + 1 + 4;
+
+    public long black = 0;
+    public long white = 0;
+    public FieldValue side = FieldValue.WHITE;
+    public float label = 0;
+
+    public LabelledPosition(long black, long white, FieldValue side, float label) {
+        this.black = black;
+        this.white = white;
+        this.side = side;
+        this.label = label;
+    }
+
+    public LabelledPosition(Board board, FieldValue side, double label) {
+        this(BitBoard.mask(board, FieldValue.BLACK), BitBoard.mask(board, FieldValue.WHITE), side, (float)label);
+    }
+
+    public FieldValue getFieldValue(int square) {
+        if((black >>> square & 1) != 0) {
+            return FieldValue.BLACK;
+        }
+        if((white >>> square & 1) != 0) {
+            return FieldValue.WHITE;
+        }
+        return FieldValue.EMPTY;
+    }
+
+    public Board toBoard(String game) {
+        Board board = Games.emptyBoard(game);
+        int columns = Games.columns(game);
+        for(int square = 0; square < Games.rows(game) * columns; square++) {
+            FieldValue value = getFieldValue(square);
+            if(value != FieldValue.EMPTY) {
+                board.setFieldValue(square / columns, square % columns, value);
+            }
+        }
+        return board;
+    }
+
+    public void write(DataOutputStream out) throws IOException {
+        out.writeLong(black);
+        out.writeLong(white);
+        out.writeByte(side.ordinal());
+        out.writeFloat(label);
+    }
+
+    public static LabelledPosition read(DataInputStream in) throws IOException {
+        return new LabelledPosition(in.readLong(), in.readLong(), FieldValue.values()[in.readUnsignedByte()], in.readFloat());
+    }
+}
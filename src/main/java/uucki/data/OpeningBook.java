@@ -0,0 +1,140 @@
+package uucki.data;
+
+import java.io.*;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+
+import uucki.game.Board;
+import uucki.game.Games;
+import uucki.game.reversi.BitBoard;
+import uucki.type.FieldValue;
+
+/*
+ * Statistics of reversi positions that were searched often, in a memory mapped hash table.
+ * A position is looked up with the color to move, plays and score have the meaning of an
+ * MCTS node: score counts the wins of the player that made the move into the position.
+ * Positions that are the same up to rotation or reflection share an entry.
+ * File: header, slot count, then the slots (key long, plays int, score double), key 0 is empty.
+ * The score is the sum over all plays, a double keeps it exact when books are merged again and again.
+ */
+public class OpeningBook {
+
+    public final static int SLOT_BYTES = 8 + 4 + 8;
+
+    private final static long BLACK_TO_MOVE = 0x5DEECE66DL;
+
+    private static Map<String, OpeningBook> loaded = new HashMap<String, OpeningBook>();
+
+    private MappedByteBuffer slots = null;
+    private int slotCount = 0;
+    private DataHeader header = null;
+
+    public static class Entry {
+        public int plays = 0;
+        public double score = 0;
+
+        public Entry(int plays, double score) {
+            this.plays = plays;
+            this.score = score;
+        }
+    }
+
+    private OpeningBook(File file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            header = DataHeader.read(in, DataHeader.BOOK);
+            slotCount = in.readInt();
+        }
+        int offset = header.length() + 4;
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r"); FileChannel channel = raf.getChannel()) {
+            slots = channel.map(FileChannel.MapMode.READ_ONLY, offset, (long)slotCount * SLOT_BYTES);
+        }
+    }
+
+    public static OpeningBook open(File file) throws IOException {
+        return new OpeningBook(file);
+    }
+
+    //every algorithm that uses the same file shares one mapping
+    public static synchronized OpeningBook load(String path) throws IOException {
+        OpeningBook book = loaded.get(path);
+        if(book == null) {
+            book = open(new File(path));
+            loaded.put(path, book);
+        }
+        return book;
+    }
+
+    public DataHeader getHeader() {
+        return header;
+    }
+
+    public static long key(Board board, FieldValue color) {
+        long key = BitBoard.canonicalHash((uucki.game.reversi.Board)board) ^ (color == FieldValue.BLACK ? BLACK_TO_MOVE : 0);
+        return key == 0 ? 1 : key;
+    }
+
+    //null when the position is not in the book, only reversi boards can be in the book
+    public Entry get(Board board, FieldValue color) {
+        if(!(board instanceof uucki.game.reversi.Board)) {
+            return null;
+        }
+        return get(key(board, color));
+    }
+
+    public Entry get(long key) {
+        int mask = slotCount - 1;
+        for(int slot = (int)key & mask; ; slot = (slot + 1) & mask) {
+            int position = slot * SLOT_BYTES;
+            long slotKey = slots.getLong(position);
+            if(slotKey == key) {
+                return new Entry(slots.getInt(position + 8), slots.getDouble(position + 12));
+            }
+            if(slotKey == 0) {
+                return null;
+            }
+        }
+    }
+
+    public Map<Long, Entry> entries() {
+        Map<Long, Entry> entries = new HashMap<Long, Entry>();
+        for(int slot = 0; slot < slotCount; slot++) {
+            int position = slot * SLOT_BYTES;
+            long key = slots.getLong(position);
+            if(key != 0) {
+                entries.put(key, new Entry(slots.getInt(position + 8), slots.getDouble(position + 12)));
+            }
+        }
+        return entries;
+    }
+
+    //the table is at most half full, so lookups stay short. The book is written next to file and
+    //moved over it when it is complete, so a reader never sees half a book
+    public static void write(File file, String settings, Map<Long, Entry> entries) throws IOException {
+        int slotCount = Integer.highestOneBit(Math.max(1, entries.size()) * 2) * 2;
+        long[] keys = new long[slotCount];
+        Entry[] values = new Entry[slotCount];
+        for(Map.Entry<Long, Entry> entry : entries.entrySet()) {
+            int slot = (int)(long)entry.getKey() & (slotCount - 1);
+            while(keys[slot] != 0) {
+                slot = (slot + 1) & (slotCount - 1);
+            }
+            keys[slot] = entry.getKey();
+            values[slot] = entry.getValue();
+        }
+
+        File temporary = new File(file.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temporary), 1 << 16))) {
+            new DataHeader(DataHeader.BOOK, Games.REVERSI, settings).write(out);
+            out.writeInt(slotCount);
+            for(int slot = 0; slot < slotCount; slot++) {
+                out.writeLong(keys[slot]);
+                out.writeInt(values[slot] == null ? 0 : values[slot].plays);
+                out.writeDouble(values[slot] == null ? 0 : values[slot].score);
+            }
+        }
+        Files.move(temporary.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
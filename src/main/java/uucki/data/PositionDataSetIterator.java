@@ -0,0 +1,279 @@
+package uucki.data;
+
+import java.io.*;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.dataset.DataSet;
+import org.nd4j.linalg.dataset.api.DataSetPreProcessor;
+import org.nd4j.linalg.dataset.api.iterator.DataSetIterator;
+import org.nd4j.linalg.factory.Nd4j;
+
+import uucki.game.Games;
+import uucki.game.reversi.BitBoard;
+import uucki.type.FieldValue;
+
+/*
+ * Batches from a binary position file (see PositionWriter), the file is memory mapped
+ * so it can be larger than the available memory.
+ * Features are one value per square from the view of the side to move: 1 own stone,
+ * -1 opponent stone, 0 empty. The label is the value of the position for that side.
+ * The last testFraction of the file is the test set, the rest the training set.
+ * The order is shuffled every epoch: chunks of shuffleBuffer records are read in a random
+ * order into a buffer and batches are drawn from it at random, on a background thread.
+ * With augment every reversi position is given in all 8 orientations, every orientation
+ * is a separate example in the shuffle.
+ */
+public class PositionDataSetIterator implements DataSetIterator {
+
+    public final static int PREFETCH = 4;
+
+    //a mapped window can not be larger than 2GB
+    private final static int RECORDS_PER_WINDOW = Integer.MAX_VALUE / LabelledPosition.BYTES;
+
+    private MappedByteBuffer[] windows = null;
+    private long first = 0;
+    private long count = 0;
+    private int symmetries = 1;
+    private int squares = 0;
+    private int batchSize = 0;
+    private int shuffleBuffer = 0;
+    private long seed = 0;
+
+    private int epoch = 0;
+    private long cursor = 0;
+    private Thread producer = null;
+    private BlockingQueue<DataSet> batches = new ArrayBlockingQueue<DataSet>(PREFETCH);
+    //the rest of a batch that was split by next(num)
+    private DataSet leftover = null;
+    private volatile Throwable failure = null;
+    private DataSetPreProcessor preProcessor = null;
+
+    public PositionDataSetIterator(File file, int batchSize, boolean test, double testFraction, int shuffleBuffer, long seed) throws IOException {
+        this(file, batchSize, test, testFraction, shuffleBuffer, seed, false);
+    }
+
+    public PositionDataSetIterator(File file, int batchSize, boolean test, double testFraction, int shuffleBuffer, long seed, boolean augment) throws IOException {
+        this.batchSize = batchSize;
+        this.shuffleBuffer = shuffleBuffer;
+        this.seed = seed;
+
+        DataHeader header = null;
+        try (PositionReader reader = new PositionReader(file)) {
+            header = reader.getHeader();
+        }
+        squares = Games.rows(header.game) * Games.columns(header.game);
+        if(augment) {
+            if(!header.game.equals(Games.REVERSI)) {
+                throw new IllegalArgumentException("Only reversi positions can be augmented, not " + header.game);
+            }
+            symmetries = BitBoard.SYMMETRIES;
+        }
+
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r"); FileChannel channel = raf.getChannel()) {
+            long records = (channel.size() - header.length()) / LabelledPosition.BYTES;
+            windows = new MappedByteBuffer[(int)((records + RECORDS_PER_WINDOW - 1) / RECORDS_PER_WINDOW)];
+            for(int i = 0; i < windows.length; i++) {
+                long start = (long)i * RECORDS_PER_WINDOW;
+                long size = Math.min(RECORDS_PER_WINDOW, records - start) * LabelledPosition.BYTES;
+                windows[i] = channel.map(FileChannel.MapMode.READ_ONLY, header.length() + start * LabelledPosition.BYTES, size);
+            }
+
+            long testRecords = (long)(records * testFraction);
+            first = test ? records - testRecords : 0;
+            count = (test ? testRecords : records - testRecords) * symmetries;
+        }
+        start();
+    }
+
+    private void start() {
+        batches.clear();
+        leftover = null;
+        cursor = 0;
+        Random random = new Random(seed * 31 + epoch);
+        producer = new Thread(() -> {
+            try {
+                produce(random);
+            } catch (InterruptedException e) {
+                //reset was called
+            } catch (Throwable e) {
+                failure = e;
+            }
+        });
+        producer.setDaemon(true);
+        producer.start();
+    }
+
+    private void produce(Random random) throws InterruptedException {
+        int chunks = (int)((count + shuffleBuffer - 1) / shuffleBuffer);
+        List<Integer> order = new ArrayList<Integer>(chunks);
+        for(int i = 0; i < chunks; i++) {
+            order.add(i);
+        }
+        Collections.shuffle(order, random);
+
+        //half a chunk stays in the buffer, so every batch mixes two chunks
+        int keep = shuffleBuffer / 2;
+        long[] buffer = new long[shuffleBuffer + keep + batchSize];
+        float[] features = new float[batchSize * squares];
+        float[] labels = new float[batchSize];
+        int size = 0;
+        for(int chunk : order) {
+            long end = Math.min((long)(chunk + 1) * shuffleBuffer, count);
+            for(long index = (long)chunk * shuffleBuffer; index < end; index++) {
+                buffer[size++] = index;
+            }
+            while(size - batchSize >= keep) {
+                size = takeBatch(buffer, size, batchSize, features, labels, random);
+            }
+        }
+        while(size > 0) {
+            size = takeBatch(buffer, size, Math.min(batchSize, size), features, labels, random);
+        }
+    }
+
+    //returns the amount of records left in the buffer
+    private int takeBatch(long[] buffer, int size, int examples, float[] features, float[] labels, Random random) throws InterruptedException {
+        for(int i = 0; i < examples; i++) {
+            int pick = random.nextInt(size);
+            fill(buffer[pick], i, features, labels);
+            buffer[pick] = buffer[--size];
+        }
+        batches.put(toDataSet(features, labels, examples));
+        return size;
+    }
+
+    //example is record * symmetries + symmetry, counted from the start of the split
+    private void fill(long example, int row, float[] features, float[] labels) {
+        long record = first + example / symmetries;
+        int symmetry = (int)(example % symmetries);
+        MappedByteBuffer window = windows[(int)(record / RECORDS_PER_WINDOW)];
+        int offset = (int)(record % RECORDS_PER_WINDOW) * LabelledPosition.BYTES;
+        long black = BitBoard.transform(window.getLong(offset), symmetry);
+        long white = BitBoard.transform(window.getLong(offset + 8), symmetry);
+        boolean whiteToMove = window.get(offset + 16) != FieldValue.BLACK.ordinal();
+        long own = whiteToMove ? white : black;
+        long opponent = whiteToMove ? black : white;
+        for(int square = 0; square < squares; square++) {
+            features[row * squares + square] = (own >>> square & 1) - (opponent >>> square & 1);
+        }
+        labels[row] = window.getFloat(offset + 17);
+    }
+
+    private DataSet toDataSet(float[] features, float[] labels, int examples) {
+        INDArray featureMatrix = Nd4j.create(Arrays.copyOf(features, examples * squares), new int[]{examples, squares});
+        INDArray labelMatrix = Nd4j.create(Arrays.copyOf(labels, examples), new int[]{examples, 1});
+        return new DataSet(featureMatrix, labelMatrix);
+    }
+
+    public boolean hasNext() {
+        return cursor < count;
+    }
+
+    public DataSet next() {
+        return next(batchSize);
+    }
+
+    //the batches of the background thread are split or merged to num examples
+    public DataSet next(int num) {
+        if(!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        List<DataSet> parts = new ArrayList<DataSet>();
+        int examples = 0;
+        while(examples < num && hasNext()) {
+            DataSet batch = leftover != null ? leftover : take();
+            leftover = null;
+            int wanted = num - examples;
+            if(batch.numExamples() > wanted) {
+                leftover = batch.getRange(wanted, batch.numExamples());
+                batch = batch.getRange(0, wanted);
+            }
+            parts.add(batch);
+            examples += batch.numExamples();
+            cursor += batch.numExamples();
+        }
+        DataSet result = parts.size() == 1 ? parts.get(0) : DataSet.merge(parts);
+        if(preProcessor != null) {
+            preProcessor.preProcess(result);
+        }
+        return result;
+    }
+
+    private DataSet take() {
+        try {
+            DataSet batch = null;
+            while((batch = batches.poll(1, TimeUnit.SECONDS)) == null) {
+                if(failure != null) {
+                    throw new IllegalStateException("Could not read positions", failure);
+                }
+            }
+            return batch;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public int totalExamples() {
+        return (int)Math.min(count, Integer.MAX_VALUE);
+    }
+
+    public int inputColumns() {
+        return squares;
+    }
+
+    public int totalOutcomes() {
+        return 1;
+    }
+
+    public boolean resetSupported() {
+        return true;
+    }
+
+    public boolean asyncSupported() {
+        //the batches are already made on a background thread
+        return false;
+    }
+
+    //every reset starts a new epoch with a different order
+    public void reset() {
+        producer.interrupt();
+        try {
+            producer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        epoch++;
+        start();
+    }
+
+    public int batch() {
+        return batchSize;
+    }
+
+    public int cursor() {
+        return (int)Math.min(cursor, Integer.MAX_VALUE);
+    }
+
+    public int numExamples() {
+        return totalExamples();
+    }
+
+    public void setPreProcessor(DataSetPreProcessor preProcessor) {
+        this.preProcessor = preProcessor;
+    }
+
+    public DataSetPreProcessor getPreProcessor() {
+        return preProcessor;
+    }
+
+    public List<String> getLabels() {
+        return null;
+    }
+}
@@ -0,0 +1,31 @@
+package uucki.data;
+
+import java.io.*;
+
+public class PositionReader implements Closeable {
+
+    private DataInputStream in = null;
+    private DataHeader header = null;
+
+    public PositionReader(File file) throws IOException {
+        in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 1 << 16));
+        header = DataHeader.read(in, DataHeader.POSITIONS);
+    }
+
+    public DataHeader getHeader() {
+        return header;
+    }
+
+    //returns null at the end of the file
+    public LabelledPosition next() throws IOException {
+        try {
+            return LabelledPosition.read(in);
+        } catch (EOFException e) {
+            return null;
+        }
+    }
+
+    public void close() throws IOException {
+        in.close();
+    }
+}
@@ -0,0 +1,21 @@
+package uucki.data;
+
+import java.io.*;
+
+public class PositionWriter implements Closeable {
+
+    private DataOutputStream out = null;
+
+    public PositionWriter(File file, String game, String settings) throws IOException {
+        out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 1 << 16));
+        new DataHeader(DataHeader.POSITIONS, game, settings).write(out);
+    }
+
+    public void write(LabelledPosition position) throws IOException {
+        position.write(out);
+    }
+
+    public void close() throws IOException {
+        out.close();
+    }
+}
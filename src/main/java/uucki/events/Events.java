@@ -0,0 +1,60 @@
+package uucki.events;
+
+/*
+ * Flight recorder events of searches and games. They cost nothing until a recording is
+ * started, e.g. with java -XX:StartFlightRecording=filename=games.jfr, and can be read
+ * with jfr print --categories uucki games.jfr or Java Mission Control.
+ * On a JVM without jdk.jfr the methods return null instead of an event, so every caller
+ * checks for null and the event classes are never loaded there.
+ * Callers end an event and only fill in its fields when shouldCommit says that the
+ * recording keeps it, some fields take a while to compute.
+ */
+public class Events {
+
+    public final static boolean AVAILABLE = available();
+
+    private static boolean available() {
+        try {
+            Class.forName("jdk.jfr.Event");
+            return true;
+        } catch (ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+    }
+
+    public static MoveEvent moveStarted() {
+        if(!AVAILABLE) {
+            return null;
+        }
+        MoveEvent event = new MoveEvent();
+        event.begin();
+        return event;
+    }
+
+    public static SearchIterationEvent iterationStarted() {
+        if(!AVAILABLE) {
+            return null;
+        }
+        SearchIterationEvent event = new SearchIterationEvent();
+        event.begin();
+        return event;
+    }
+
+    public static TreeReuseEvent treeReuseStarted() {
+        if(!AVAILABLE) {
+            return null;
+        }
+        TreeReuseEvent event = new TreeReuseEvent();
+        event.begin();
+        return event;
+    }
+
+    public static GameEvent gameStarted() {
+        if(!AVAILABLE) {
+            return null;
+        }
+        GameEvent event = new GameEvent();
+        event.begin();
+        return event;
+    }
+}
@@ -0,0 +1,36 @@
+package uucki.events;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/*
+ * A game between two algorithms, from the first move until it is finished.
+ */
+@Name("uucki.Game")
+@Label("Game")
+@Category({"uucki", "Games"})
+@Description("A game between two algorithms")
+public class GameEvent extends Event {
+
+    @Label("Name")
+    @Description("The key of a tournament game")
+    public String name;
+
+    @Label("Game")
+    public String game;
+
+    @Label("White")
+    public String white;
+
+    @Label("Black")
+    public String black;
+
+    @Label("Moves")
+    public int moves;
+
+    @Label("Winner")
+    public String winner;
+}
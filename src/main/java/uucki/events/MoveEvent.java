@@ -0,0 +1,56 @@
+package uucki.events;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/*
+ * One call of Algorithm.run, it starts when the algorithm is asked for a move and ends
+ * when the move is returned.
+ */
+@Name("uucki.Move")
+@Label("Move")
+@Category({"uucki", "Search"})
+@Description("An algorithm searching for a move")
+public class MoveEvent extends Event {
+
+    @Label("Algorithm")
+    public String algorithm;
+
+    @Label("C")
+    public double c;
+
+    @Label("Strategy")
+    @Description("How MCTS plays out its simulations")
+    public String strategy;
+
+    @Label("Threads")
+    public int threads;
+
+    @Label("Color")
+    public String color;
+
+    @Label("Empty Fields")
+    public int emptyFields;
+
+    @Label("Move")
+    @Description("The move that was found, empty for a pass")
+    public String move;
+
+    @Label("Value")
+    @Description("Value of the position for the color to move, NaN when nothing was searched")
+    public double value;
+
+    @Label("Simulations")
+    public long simulations;
+
+    @Label("Nodes")
+    @Description("Positions minimax visited, or nodes MCTS added to its tree")
+    public long nodes;
+
+    @Label("Depth")
+    @Description("Completed depth of minimax, see the search iterations for MCTS")
+    public int depth;
+}
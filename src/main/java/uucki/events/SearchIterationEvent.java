@@ -0,0 +1,35 @@
+package uucki.events;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/*
+ * One depth of the iterative deepening of minimax, or the search of one MCTS worker,
+ * the thread of the event tells the workers apart.
+ */
+@Name("uucki.SearchIteration")
+@Label("Search Iteration")
+@Category({"uucki", "Search"})
+@Description("One depth of minimax or the search of one MCTS worker")
+public class SearchIterationEvent extends Event {
+
+    @Label("Algorithm")
+    public String algorithm;
+
+    @Label("Depth")
+    @Description("Depth of minimax, or the deepest simulation of the MCTS worker")
+    public int depth;
+
+    @Label("Simulations")
+    public long simulations;
+
+    @Label("Nodes")
+    public long nodes;
+
+    @Label("Completed")
+    @Description("Minimax: the depth was searched before the limits stopped it, MCTS: the root was proven")
+    public boolean completed;
+}
@@ -0,0 +1,31 @@
+package uucki.events;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/*
+ * MCTS keeping its tree for the next move: the node of the new position becomes the root
+ * and the nodes that can not be reached any more are removed.
+ */
+@Name("uucki.TreeReuse")
+@Label("Tree Re-rooting")
+@Category({"uucki", "Search"})
+@Description("The tree of the last search is re-rooted on the new position")
+public class TreeReuseEvent extends Event {
+
+    @Label("Nodes Before")
+    public int nodesBefore;
+
+    @Label("Nodes After")
+    public int nodesAfter;
+
+    @Label("Root Plays")
+    @Description("Simulations of the new root that were made before")
+    public int rootPlays;
+
+    @Label("Empty Fields")
+    public int emptyFields;
+}
@@ -0,0 +1,42 @@
+package uucki.game;
+
+public class Games {
+
+    public final static String REVERSI = "reversi";
+    public final static String FOUR_IN_A_ROW = "fourinarow";
+
+    public static Board initialBoard(String game) {
+        if(game.equals(REVERSI)) {
+            return uucki.game.reversi.Board.initialBoard(false);
+        }
+        if(game.equals(FOUR_IN_A_ROW)) {
+            uucki.game.fourinarow.Board board = new uucki.game.fourinarow.Board();
+            board.negativeWinner = true;
+            return board;
+        }
+        throw new IllegalArgumentException("Unknown game: " + game);
+    }
+
+    public static Board emptyBoard(String game) {
+        if(game.equals(REVERSI)) {
+            return new uucki.game.reversi.Board();
+        }
+        if(game.equals(FOUR_IN_A_ROW)) {
+            return new uucki.game.fourinarow.Board();
+        }
+        throw new IllegalArgumentException("Unknown game: " + game);
+    }
+
+    public static String name(Board board) {
+        return board instanceof uucki.game.reversi.Board ? REVERSI : FOUR_IN_A_ROW;
+    }
+
+    //Board.COLUMN_COUNT belongs to the last board that was created, so it is looked up by name
+    public static int columns(String game) {
+        return game.equals(REVERSI) ? 8 : 7;
+    }
+
+    public static int rows(String game) {
+        return game.equals(REVERSI) ? 8 : 6;
+    }
+}
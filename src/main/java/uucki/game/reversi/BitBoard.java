@@ -0,0 +1,116 @@
+package uucki.game.reversi;
+
+import uucki.type.FieldValue;
+
+/*
+ * Reversi boards as 64 bit masks, bit row * 8 + column.
+ * The 8 symmetries of the board are built from three flips:
+ * flipping the rows, mirroring the columns and flipping along the main diagonal.
+ */
+public class BitBoard {
+
+    public final static int SYMMETRIES = 8;
+
+    //the fields of color, also for the boards of other games with at most 64 fields
+    public static long mask(uucki.game.Board board, FieldValue color) {
+        long mask = 0;
+        for(int i = 0; i < board.board.length; i++) {
+            if(board.board[i] == color) {
+                mask |= 1L << i;
+            }
+        }
+        return mask;
+    }
+
+    public static Board toBoard(long black, long white) {
+        Board board = new Board();
+        for(int i = 0; i < 64; i++) {
+            if((black >>> i & 1) != 0) {
+                board.setFieldValue(i / 8, i % 8, FieldValue.BLACK);
+            } else if((white >>> i & 1) != 0) {
+                board.setFieldValue(i / 8, i % 8, FieldValue.WHITE);
+            }
+        }
+        return board;
+    }
+
+    //row r becomes row 7 - r, every row is one byte
+    public static long flipVertical(long x) {
+        return Long.reverseBytes(x);
+    }
+
+    //column c becomes column 7 - c
+    public static long mirrorHorizontal(long x) {
+        x = ((x >>> 1) & 0x5555555555555555L) | ((x & 0x5555555555555555L) << 1);
+        x = ((x >>> 2) & 0x3333333333333333L) | ((x & 0x3333333333333333L) << 2);
+        x = ((x >>> 4) & 0x0F0F0F0F0F0F0F0FL) | ((x & 0x0F0F0F0F0F0F0F0FL) << 4);
+        return x;
+    }
+
+    //row and column are swapped
+    public static long flipDiagonal(long x) {
+        long t;
+        t = 0x0F0F0F0F00000000L & (x ^ (x << 28));
+        x ^= t ^ (t >>> 28);
+        t = 0x3333000033330000L & (x ^ (x << 14));
+        x ^= t ^ (t >>> 14);
+        t = 0x5500550055005500L & (x ^ (x << 7));
+        x ^= t ^ (t >>> 7);
+        return x;
+    }
+
+    //symmetry 0 is the identity, bit 0 mirrors the columns, bit 1 flips the rows and bit 2 swaps rows and columns
+    public static long transform(long x, int symmetry) {
+        if((symmetry & 1) != 0) {
+            x = mirrorHorizontal(x);
+        }
+        if((symmetry & 2) != 0) {
+            x = flipVertical(x);
+        }
+        if((symmetry & 4) != 0) {
+            x = flipDiagonal(x);
+        }
+        return x;
+    }
+
+    //the symmetry that gives the smallest (black, white) pair, the same for every orientation of a position
+    public static int canonicalSymmetry(long black, long white) {
+        int best = 0;
+        long bestBlack = black;
+        long bestWhite = white;
+        for(int symmetry = 1; symmetry < SYMMETRIES; symmetry++) {
+            long b = transform(black, symmetry);
+            long w = transform(white, symmetry);
+            if(Long.compareUnsigned(b, bestBlack) < 0 || (b == bestBlack && Long.compareUnsigned(w, bestWhite) < 0)) {
+                best = symmetry;
+                bestBlack = b;
+                bestWhite = w;
+            }
+        }
+        return best;
+    }
+
+    //the same for all 8 orientations of a position, for transposition tables and opening books
+    public static long canonicalHash(long black, long white) {
+        int symmetry = canonicalSymmetry(black, white);
+        return hash(transform(black, symmetry), transform(white, symmetry));
+    }
+
+    public static long canonicalHash(Board board) {
+        return canonicalHash(mask(board, FieldValue.BLACK), mask(board, FieldValue.WHITE));
+    }
+
+    public static long hash(long black, long white) {
+        return mix(black * 0x9E3779B97F4A7C15L + mix(white));
+    }
+
+    //finalizer of murmur3
+    private static long mix(long x) {
+        x ^= x >>> 33;
+        x *= 0xFF51AFD7ED558CCDL;
+        x ^= x >>> 33;
+        x *= 0xC4CEB9FE1A85EC53L;
+        x ^= x >>> 33;
+        return x;
+    }
+}
@@ -7,9 +7,24 @@ import uucki.graphics.reversi.MonteCarlo;
 
 import java.awt.event.*;
 import java.awt.*;
-
+import java.awt.image.BufferedImage;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/*
+ * The board, drawn into an image that is copied to the screen. A field is only drawn
+ * again when its stone or heatmap color is different from what the image shows,
+ * and only its part of the screen is repainted. Clicks are put in a queue, so a
+ * thread waiting for a click sleeps until there is one.
+ */
 public class Fields extends Canvas implements MouseListener{
     private FieldValue[][] values = null;
+    private Color[][] heat = null;
+
+    //what the image shows, null when a field still has to be drawn
+    private FieldValue[][] paintedValues = null;
+    private Color[][] paintedHeat = null;
+    private BufferedImage image = null;
 
     private MonteCarlo mtPainter = null;
 
@@ -18,7 +33,7 @@ public class Fields extends Canvas implements MouseListener{
     private int fieldWidth = 0;
     private int fieldHeight = 0;
 
-    private Position lastClick = null;
+    private BlockingQueue<Position> clicks = new LinkedBlockingQueue<Position>();
 
     public Fields(Board board, MonteCarlo mtPainter) {
         super();
@@ -33,6 +48,7 @@ public class Fields extends Canvas implements MouseListener{
                 values[row][column] = FieldValue.EMPTY;
             }
         }
+        heat = new Color[rows][cols];
 
         addMouseListener(this);
         this.mtPainter = mtPainter;
@@ -42,75 +58,131 @@ public class Fields extends Canvas implements MouseListener{
         super.setSize(width, height);
     }
 
-    public void updateValues(Board board) {
+    public synchronized void updateValues(Board board) {
         for(int row = 0; row < rows; row++) {
             for(int column = 0; column < cols; column++) {
-                values[row][column] = board.getFieldValue(row, column);
+                FieldValue value = board.getFieldValue(row, column);
+                if(values[row][column] != value) {
+                    values[row][column] = value;
+                    repaintField(row, column);
+                }
             }
         }
     }
 
-    public void paint(Graphics g) {
-        fieldWidth = (int)Math.round(getWidth() / (double)cols);
-        fieldHeight = (int)Math.round(getHeight() / (double)rows);
-
+    //reads the colors of the heatmap again
+    public synchronized void updateHeatmap() {
+        if(mtPainter == null) {
+            return;
+        }
         for(int row = 0; row < rows; row++) {
             for(int column = 0; column < cols; column++) {
-                if(values[row][column] == null) {
-                    g.setColor(Color.GRAY);
-                    g.fillRect(column * fieldWidth, row * fieldHeight, fieldWidth, fieldHeight);
-                } else {
-                    switch(values[row][column]) {
-                        case EMPTY:
-                            g.setColor(Color.GRAY);
-                            g.fillRect(column * fieldWidth, row * fieldHeight, fieldWidth, fieldHeight);
-                            break;
-                        case WHITE:
-                            g.setColor(Color.WHITE);
-                            g.fillOval(column * fieldWidth, row * fieldHeight, fieldWidth, fieldHeight);
-                            break;
-                        case BLACK:
-                            g.setColor(Color.BLACK);
-                            g.fillOval(column * fieldWidth, row * fieldHeight, fieldWidth, fieldHeight);
-                            break;
-                    }
+                Color color = mtPainter.getColor(row, column);
+                if(color == null ? heat[row][column] != null : !color.equals(heat[row][column])) {
+                    heat[row][column] = color;
+                    repaintField(row, column);
                 }
             }
         }
+    }
 
-        g.setColor(Color.GREEN);
-        for(int i = 0; i < cols; i++) {
-            g.drawLine(i * fieldWidth, 0, i * fieldWidth, getHeight());
+    private void repaintField(int row, int column) {
+        if(fieldWidth > 0 && fieldHeight > 0) {
+            repaint(column * fieldWidth, row * fieldHeight, fieldWidth + 1, fieldHeight + 1);
         }
-        for(int i = 0; i < rows; i++) {
-            g.drawLine(0, i * fieldHeight, getWidth(), i * fieldHeight);
+    }
+
+    //the default update clears the canvas first, the image covers all of it anyway
+    public void update(Graphics g) {
+        paint(g);
+    }
+
+    public synchronized void paint(Graphics g) {
+        if(image == null || image.getWidth() != getWidth() || image.getHeight() != getHeight()) {
+            createImage();
         }
 
-        if(mtPainter != null) {
-            mtPainter.paint(fieldWidth, fieldHeight, g);
+        Graphics imageGraphics = image.getGraphics();
+        for(int row = 0; row < rows; row++) {
+            for(int column = 0; column < cols; column++) {
+                if(paintedValues[row][column] != values[row][column] || paintedHeat[row][column] != heat[row][column]) {
+                    paintField(imageGraphics, row, column);
+                    paintedValues[row][column] = values[row][column];
+                    paintedHeat[row][column] = heat[row][column];
+                }
+            }
         }
+        imageGraphics.dispose();
 
+        g.drawImage(image, 0, 0, null);
         Toolkit.getDefaultToolkit().sync();
     }
 
+    //a new size, everything is drawn again
+    private void createImage() {
+        image = new BufferedImage(Math.max(1, getWidth()), Math.max(1, getHeight()), BufferedImage.TYPE_INT_RGB);
+        Graphics imageGraphics = image.getGraphics();
+        imageGraphics.setColor(Color.GRAY);
+        imageGraphics.fillRect(0, 0, image.getWidth(), image.getHeight());
+        imageGraphics.dispose();
+
+        fieldWidth = (int)Math.round(getWidth() / (double)cols);
+        fieldHeight = (int)Math.round(getHeight() / (double)rows);
+        paintedValues = new FieldValue[rows][cols];
+        paintedHeat = new Color[rows][cols];
+        for(int row = 0; row < rows; row++) {
+            for(int column = 0; column < cols; column++) {
+                paintedHeat[row][column] = Color.GRAY;
+            }
+        }
+    }
+
+    private void paintField(Graphics g, int row, int column) {
+        int x = column * fieldWidth;
+        int y = row * fieldHeight;
+
+        g.setColor(heat[row][column] != null ? heat[row][column] : Color.GRAY);
+        g.fillRect(x, y, fieldWidth, fieldHeight);
+        if(values[row][column] == FieldValue.WHITE) {
+            g.setColor(Color.WHITE);
+            g.fillOval(x, y, fieldWidth, fieldHeight);
+        } else if(values[row][column] == FieldValue.BLACK) {
+            g.setColor(Color.BLACK);
+            g.fillOval(x, y, fieldWidth, fieldHeight);
+        }
+
+        g.setColor(Color.GREEN);
+        g.drawLine(x, y, x, y + fieldHeight);
+        g.drawLine(x, y, x + fieldWidth, y);
+    }
+
+    //forgets the clicks that were made before
     public void acceptingClick() {
-        lastClick = null;
+        clicks.clear();
     }
 
-    public Position consumeClick() {
-        return lastClick;
+    //waits for the next click, null when the thread is interrupted
+    public Position takeClick() {
+        try {
+            return clicks.take();
+        } catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
     }
 
-    public void mouseClicked(MouseEvent e) {
+    public void mousePressed(MouseEvent e) {
         int x = e.getX();
         int y = e.getY();
-        fieldWidth = (int)Math.round(getWidth() / (double)cols);
-        fieldHeight = (int)Math.round(getHeight() / (double)rows);
+        int width = (int)Math.round(getWidth() / (double)cols);
+        int height = (int)Math.round(getHeight() / (double)rows);
 
-        lastClick = new Position(y / fieldHeight, x / fieldWidth);
-        System.out.println(lastClick);
+        Position click = new Position(y / height, x / width);
+        if(click.row < rows && click.column < cols) {
+            clicks.offer(click);
+        }
     }
-    public void mousePressed(MouseEvent e) {
+    public void mouseClicked(MouseEvent e) {
 
     }
     public void mouseReleased(MouseEvent e) {
@@ -16,33 +16,24 @@ public class Window{
         frame.setSize(500,500);
 
 
-        fields = new Fields(board, null);
+        fields = new Fields(board, mc);
         frame.add(fields);
         frame.setVisible(true);
     }
 
     public void update(Board board) {
         fields.updateValues(board);
-        fields.repaint();
     }
 
+    //draws the heatmap again
     public void repaint() {
-        fields.repaint();
+        fields.updateHeatmap();
     }
 
+    //waits for a click made after this call, null when the thread is interrupted
     public Position getPosition() {
         fields.acceptingClick();
-
-        Position newPosition = null;
-        while(newPosition == null) {
-            newPosition = fields.consumeClick();
-            try {
-                Thread.sleep(300);
-            } catch(InterruptedException e) {
-
-            }
-        }
-        return newPosition;
+        return fields.takeClick();
     }
 
     public void hide() {
@@ -1,31 +1,29 @@
 package uucki.graphics.reversi;
 
-import java.util.Map;
-import java.util.Set;
-import java.awt.Graphics;
 import java.awt.Color;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
 
+import uucki.algorithm.RootSnapshot;
 import uucki.type.Position;
 
 public class MonteCarlo {
 
-    private Set<Map.Entry<Position, Double>> probabilities = null;
-
-    public void paint(int fieldWidth, int fieldHeight, Graphics g) {
-        if(probabilities == null) {
-            return;
-        }
+    private volatile Map<Position, Color> colors = Collections.emptyMap();
 
-        for(Map.Entry<Position, Double> entry : probabilities) {
-            Position position = entry.getKey();
-            Double probability = entry.getValue();
-            int normalized = (int)Math.round(probability * 128) + 128;
-            g.setColor(new Color(normalized, 0, 0));
-            g.fillRect(position.column * fieldWidth, position.row * fieldHeight, fieldWidth, fieldHeight);
-        }
+    //the color of a move of the search, brighter red for a higher win rate, null for other fields
+    public Color getColor(int row, int column) {
+        return colors.get(new Position(row, column));
     }
 
-    public void update(Map<Position, Double> probabilities) {
-        this.probabilities = probabilities.entrySet();
+    public void update(RootSnapshot snapshot) {
+        Map<Position, Color> newColors = new HashMap<Position, Color>();
+        for(int i = 0; i < snapshot.size(); i++) {
+            double value = Double.isNaN(snapshot.getValue(i)) ? 0 : snapshot.getValue(i);
+            int normalized = (int)Math.round(value * 127) + 128;
+            newColors.put(snapshot.getPosition(i), new Color(normalized, 0, 0));
+        }
+        colors = newColors;
     }
 }
@@ -2,46 +2,37 @@ package uucki.heuristic.reversi;
 
 import uucki.game.reversi.Board;
 import uucki.type.FieldValue;
-import uucki.type.Position;
 
-import java.util.*;
+import java.util.Random;
 import java.util.concurrent.ThreadLocalRandom;
 
 public class Util{
 
     public static Board getRandomBoard() {
-        ThreadLocalRandom tlr = ThreadLocalRandom.current();
+        return getRandomBoard(ThreadLocalRandom.current());
+    }
 
-        int amountOfPieces = tlr.nextInt(65);
+    public static Board getRandomBoard(Random random) {
+        int amountOfPieces = random.nextInt(65);
 
         Board board = new Board();
 
+        //partial shuffle, the first amountOfPieces squares get a piece
+        int[] squares = new int[64];
+        for(int i = 0; i < squares.length; i++) {
+            squares[i] = i;
+        }
         for(int i = 0; i < amountOfPieces; i++) {
-            Position position = Util.getEmptyField(tlr, board);
-            if(position == null) {
-                continue;
-            }
-            if (tlr.nextBoolean()) {
-                board.setFieldValue(position, FieldValue.WHITE);
+            int j = i + random.nextInt(squares.length - i);
+            int square = squares[j];
+            squares[j] = squares[i];
+            squares[i] = square;
+            if (random.nextBoolean()) {
+                board.setFieldValue(square / 8, square % 8, FieldValue.WHITE);
             } else {
-                board.setFieldValue(position, FieldValue.BLACK);
+                board.setFieldValue(square / 8, square % 8, FieldValue.BLACK);
             }
         }
         return board;
     }
-
-    private static Position getEmptyField(ThreadLocalRandom tlr, Board board) {
-        List<Position> positions = new ArrayList<Position>();
-        for(int x = 0; x < 8; x++) {
-            for(int y = 0; y < 8; y++) {
-                if(board.getFieldValue(x,y) == FieldValue.EMPTY || board.getFieldValue(x,y) == null) {
-                    positions.add(new Position(x,y));
-                }
-            }
-        }
-        if(positions.size() == 0) {
-            return null;
-        }
-        return positions.get(tlr.nextInt(positions.size()));
-    }
 }
@@ -1,11 +1,16 @@
 package uucki.modes;
 
+import uucki.events.Events;
+import uucki.events.GameEvent;
 import uucki.game.Board;
+import uucki.game.Games;
 import uucki.type.FieldValue;
 import uucki.type.Move;
 import uucki.algorithm.Algorithm;
 import uucki.graphics.Window;
 
+import java.util.*;
+
 public class AIvsAI {
 
     private Board board = null;
@@ -15,6 +20,12 @@ public class AIvsAI {
     private boolean showBoard = true;
     private Window window = null;
 
+    //name of the game in flight recorder events, the key of a tournament game
+    public String name = null;
+
+    //every move in order, null when a player had to pass
+    private List<Move> moves = new ArrayList<Move>();
+
     public AIvsAI(Board board, Algorithm ai1, Algorithm ai2, boolean showBoard) {
         this.board = board;
         this.ai1= ai1;
@@ -25,30 +36,63 @@ public class AIvsAI {
         }
     }
 
+    //both players draw from their own stream of the game's seed
+    public void setSeed(long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        ai1.setSeed(random.nextLong());
+        ai2.setSeed(random.nextLong());
+    }
+
     public Board game() {
+        GameEvent event = Events.gameStarted();
         while(!board.isFinished()) {
             updateBoard(board);
 
-            Move move = ai1.run(board, FieldValue.WHITE);
-            if(move != null) {
-                board = board.makeMove(move);
-            }
+            play(ai1, FieldValue.WHITE);
 
             updateBoard(board);
 
             if(!board.isFinished()) {
                 //Computer move
-                move = ai2.run(board, FieldValue.BLACK);
-                if(move != null) {
-                    board = board.makeMove(move);
-                }
+                play(ai2, FieldValue.BLACK);
             }
         }
+        ai1.stopPondering();
+        ai2.stopPondering();
 
         closeWindow();
+        if(event != null) {
+            event.end();
+            if(event.shouldCommit()) {
+                event.name = name;
+                event.game = Games.name(board);
+                event.white = ai1.toString();
+                event.black = ai2.toString();
+                event.moves = moves.size();
+                event.winner = board.getWinner() == null ? FieldValue.EMPTY.name() : board.getWinner().name();
+                event.commit();
+            }
+        }
         return board;
     }
 
+    //a pondering algorithm searches on the opponent's time with its own threads, so both
+    //algorithms together use as many cores as their threads added up
+    private void play(Algorithm ai, FieldValue color) {
+        Move move = ai.run(board, color);
+        moves.add(move);
+        if(move != null) {
+            board = board.makeMove(move);
+        }
+        if(ai.ponder && !board.isFinished()) {
+            ai.startPondering(board, color.getOpponent());
+        }
+    }
+
+    public List<Move> getMoves() {
+        return moves;
+    }
+
     private void updateBoard(Board board) {
         if(showBoard) {
             window.update(board);
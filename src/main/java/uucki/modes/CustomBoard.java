@@ -15,7 +15,13 @@ public class CustomBoard {
             System.out.println("How many whites do you want?");
             int count = Integer.parseInt(br.readLine());
             for(int i = 0; i < count; i++) {
-                board.setFieldValue(window.getPosition(), FieldValue.WHITE);
+                Position position = window.getPosition();
+                if(position == null) {
+                    //interrupted, the board is used as it is
+                    window.hide();
+                    return board;
+                }
+                board.setFieldValue(position, FieldValue.WHITE);
                 window.update(board);
             }
         } while(CustomBoard.askForMore(br));
@@ -24,7 +30,13 @@ public class CustomBoard {
             System.out.println("How many blacks do you want?");
             int count = Integer.parseInt(br.readLine());
             for(int i = 0; i < count; i++) {
-                board.setFieldValue(window.getPosition(), FieldValue.BLACK);
+                Position position = window.getPosition();
+                if(position == null) {
+                    //interrupted, the board is used as it is
+                    window.hide();
+                    return board;
+                }
+                board.setFieldValue(position, FieldValue.BLACK);
                 window.update(board);
             }
         } while(CustomBoard.askForMore(br));
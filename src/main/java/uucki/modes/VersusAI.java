@@ -6,12 +6,13 @@ import uucki.type.Move;
 import uucki.type.Position;
 import uucki.algorithm.Algorithm;
 import uucki.algorithm.MonteCarloTreeSearch;
+import uucki.algorithm.SearchHandle;
 import uucki.graphics.Window;
 import uucki.graphics.reversi.MonteCarlo;
 
 import java.util.*;
 
-public class VersusAI implements Runnable {
+public class VersusAI {
 
     private Board board = null;
     private boolean aiFirst = true;
@@ -35,16 +36,14 @@ public class VersusAI implements Runnable {
         }
         window = new Window(board, mtPainter);
         window.update(board);
-        if(algorithm instanceof MonteCarloTreeSearch) {
-            new Thread(this).start();
-        }
-
-
 
         if(aiFirst) {
-            Move move = algorithm.run(board, aiColor);
+            Move move = think();
             board = board.makeMove(move);
             window.update(board);
+            if(algorithm.ponder) {
+                algorithm.startPondering(board, opponentColor);
+            }
         }
 
         while(!board.isFinished()) {
@@ -54,6 +53,11 @@ public class VersusAI implements Runnable {
                 while(newPosition == null) {
                     System.out.println("Make your move");
                     newPosition = window.getPosition();
+                    if(newPosition == null) {
+                        //interrupted, the game ends where it is
+                        algorithm.stopPondering();
+                        return board;
+                    }
                     if(!validPositions.contains(newPosition)) {
                         newPosition = null;
                     }
@@ -63,25 +67,30 @@ public class VersusAI implements Runnable {
             }
 
             //Computer move
-            Move move = algorithm.run(board, aiColor);
+            Move move = think();
             if(move != null) {
                 board = board.makeMove(move);
                 window.update(board);
             }
+            //the search goes on while the human thinks
+            if(algorithm.ponder && !board.isFinished()) {
+                algorithm.startPondering(board, opponentColor);
+            }
         }
+        algorithm.stopPondering();
         return board;
     }
 
-    public void run() {
-        MonteCarloTreeSearch mcts = (MonteCarloTreeSearch)algorithm;
-        try {
-            while(true) {
-                Thread.sleep(100);
-                mtPainter.update(mcts.getMoveProbability());
-                window.repaint();
-            }
-        } catch (InterruptedException e) {
-
+    //the win chances of the moves are drawn while MCTS is searching
+    private Move think() {
+        if(mtPainter == null) {
+            return algorithm.start(board, aiColor).result().join().move;
         }
+        MonteCarloTreeSearch mcts = (MonteCarloTreeSearch)algorithm;
+        SearchHandle search = algorithm.start(board, aiColor, update -> {
+            mtPainter.update(mcts.getSnapshot());
+            window.repaint();
+        });
+        return search.result().join().move;
     }
 }
@@ -0,0 +1,182 @@
+package uucki.tournament;
+
+import uucki.algorithm.AlgorithmConfig;
+
+import java.io.*;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Hands out games to worker processes over tcp and collects their results.
+ * Every worker connection plays one game at a time:
+ *   worker:      READY
+ *   coordinator: GAME <key> <game> <white> <black> <seed>
+ *   worker:      RESULT <key> <white> <black> <seed> <winner>
+ *            or: ERROR <key>, when the game could not be played
+ * All fields are tab separated. When a worker disconnects or takes longer than
+ * JOB_TIMEOUT, its game goes back into the queue for another worker. A game that
+ * failed MAX_FAILURES times is given up, its future completes with an exception.
+ */
+public class Coordinator implements GameRunner, Runnable {
+
+    public final static int JOB_TIMEOUT = 30 * 60 * 1000;
+    public final static int MAX_FAILURES = 3;
+
+    private GameLog log = null;
+    private ServerSocket serverSocket = null;
+    private LinkedBlockingQueue<Pending> queue = new LinkedBlockingQueue<Pending>();
+    private volatile boolean closed = false;
+
+    public Coordinator(GameLog log, int port) throws IOException {
+        this.log = log;
+        this.serverSocket = new ServerSocket(port);
+        new Thread(this, "coordinator").start();
+        System.out.println("Waiting for workers on port " + serverSocket.getLocalPort());
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    public CompletableFuture<GameResult> submit(GameJob job) {
+        GameResult logged = log.get(job.key);
+        if(logged != null) {
+            return CompletableFuture.completedFuture(logged);
+        }
+        Pending pending = new Pending(job);
+        queue.add(pending);
+        return pending.future;
+    }
+
+    public void run() {
+        while(!closed) {
+            try {
+                Socket socket = serverSocket.accept();
+                new Thread(() -> serve(socket), "worker-" + socket.getRemoteSocketAddress()).start();
+            } catch (IOException e) {
+                if(!closed) {
+                    System.out.println("Could not accept worker: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    private void serve(Socket socket) {
+        Pending pending = null;
+        try {
+            socket.setSoTimeout(JOB_TIMEOUT);
+            BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+            PrintWriter out = new PrintWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8), true);
+
+            String line = null;
+            while((line = in.readLine()) != null) {
+                if(line.equals("READY")) {
+                    pending = next();
+                    if(pending == null) {
+                        out.println("QUIT");
+                        break;
+                    }
+                    out.println("GAME\t" + toLine(pending.job));
+                } else if(line.startsWith("RESULT\t") && pending != null) {
+                    GameResult result = GameResult.parse(line.substring(7));
+                    if(result == null || !result.key.equals(pending.job.key)) {
+                        System.out.println("Invalid result from " + socket.getRemoteSocketAddress() + ": " + line);
+                        break;
+                    }
+                    log.append(result);
+                    pending.future.complete(result);
+                    pending = null;
+                } else if(line.startsWith("ERROR\t") && pending != null) {
+                    if(!line.substring(6).equals(pending.job.key)) {
+                        System.out.println("Invalid error from " + socket.getRemoteSocketAddress() + ": " + line);
+                        break;
+                    }
+                    failed(pending, "could not be played by " + socket.getRemoteSocketAddress());
+                    pending = null;
+                }
+            }
+        } catch (SocketTimeoutException e) {
+            System.out.println("Worker " + socket.getRemoteSocketAddress() + " timed out");
+            if(pending != null) {
+                failed(pending, "timed out on " + socket.getRemoteSocketAddress());
+                pending = null;
+            }
+        } catch (SocketException e) {
+            //worker went away, its game is played by someone else
+        } catch (IOException e) {
+            System.out.println("Worker " + socket.getRemoteSocketAddress() + " failed: " + e.getMessage());
+        } finally {
+            if(pending != null && !pending.future.isDone()) {
+                queue.add(pending);
+            }
+            try {
+                socket.close();
+            } catch (IOException e) {
+
+            }
+        }
+    }
+
+    //the game goes back into the queue, or is given up when it failed too often
+    private void failed(Pending pending, String reason) {
+        pending.failures++;
+        if(pending.failures < MAX_FAILURES) {
+            queue.add(pending);
+            return;
+        }
+        System.out.println("Giving up on " + pending.job.key + " after " + pending.failures + " failures, it " + reason);
+        pending.future.completeExceptionally(new IllegalStateException("Game " + pending.job.key + " failed " + pending.failures + " times"));
+    }
+
+    //blocks until there is a game to play, returns null when the coordinator is closed
+    private Pending next() {
+        try {
+            while(!closed) {
+                Pending pending = queue.poll(1, TimeUnit.SECONDS);
+                if(pending != null) {
+                    return pending;
+                }
+            }
+        } catch (InterruptedException e) {
+
+        }
+        return null;
+    }
+
+    public void close() {
+        closed = true;
+        try {
+            serverSocket.close();
+        } catch (IOException e) {
+
+        }
+    }
+
+    public static String toLine(GameJob job) {
+        return job.key + "\t" + job.game + "\t" + job.white + "\t" + job.black + "\t" + job.seed;
+    }
+
+    public static GameJob parseJob(String line) {
+        String[] parts = line.split("\t");
+        if(parts.length != 5) {
+            throw new IllegalArgumentException("Invalid game: " + line);
+        }
+        return new GameJob(parts[0], parts[1], AlgorithmConfig.parse(parts[2]), AlgorithmConfig.parse(parts[3]), Long.parseLong(parts[4]));
+    }
+
+    private static class Pending {
+        GameJob job = null;
+        int failures = 0;
+        CompletableFuture<GameResult> future = new CompletableFuture<GameResult>();
+
+        Pending(GameJob job) {
+            this.job = job;
+        }
+    }
+}
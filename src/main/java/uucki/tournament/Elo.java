@@ -0,0 +1,56 @@
+package uucki.tournament;
+
+import java.util.Arrays;
+
+public class Elo {
+
+    private final static int MAX_ITERATIONS = 10000;
+    private final static double EPSILON = 1e-9;
+
+    /*
+     * Maximum likelihood ratings under the Bradley-Terry model, fitted with the
+     * minorization-maximization updates of Hunter (2004).
+     * scores[i][j] is the score of player i against player j, draws counted as half.
+     * Every player also gets one virtual draw against a 0 rated opponent, this keeps
+     * the ratings finite for players that won or lost all their games.
+     * The returned ratings have a mean of 0.
+     */
+    public static double[] maximumLikelihood(double[][] scores) {
+        int players = scores.length;
+        double[] gamma = new double[players];
+        Arrays.fill(gamma, 1.0);
+
+        for(int iteration = 0; iteration < MAX_ITERATIONS; iteration++) {
+            double maxChange = 0;
+            for(int i = 0; i < players; i++) {
+                double wins = 0.5;
+                double denominator = 1 / (gamma[i] + 1);
+                for(int j = 0; j < players; j++) {
+                    if(i == j) {
+                        continue;
+                    }
+                    double games = scores[i][j] + scores[j][i];
+                    wins += scores[i][j];
+                    denominator += games / (gamma[i] + gamma[j]);
+                }
+                double newGamma = wins / denominator;
+                maxChange = Math.max(maxChange, Math.abs(Math.log(newGamma / gamma[i])));
+                gamma[i] = newGamma;
+            }
+            if(maxChange < EPSILON) {
+                break;
+            }
+        }
+
+        double[] ratings = new double[players];
+        double mean = 0;
+        for(int i = 0; i < players; i++) {
+            ratings[i] = 400 * Math.log10(gamma[i]);
+            mean += ratings[i] / players;
+        }
+        for(int i = 0; i < players; i++) {
+            ratings[i] -= mean;
+        }
+        return ratings;
+    }
+}
@@ -0,0 +1,39 @@
+package uucki.tournament;
+
+import uucki.algorithm.AlgorithmConfig;
+import uucki.game.Board;
+import uucki.game.Games;
+import uucki.modes.AIvsAI;
+import uucki.type.FieldValue;
+
+public class GameJob {
+
+    public String key = null;
+    public String game = Games.FOUR_IN_A_ROW;
+    public AlgorithmConfig white = null;
+    public AlgorithmConfig black = null;
+    public long seed = 0;
+
+    public GameJob(String key, String game, AlgorithmConfig white, AlgorithmConfig black, long seed) {
+        this.key = key;
+        this.game = game;
+        this.white = white;
+        this.black = black;
+        this.seed = seed;
+    }
+
+    public GameResult play() {
+        AIvsAI mode = new AIvsAI(Games.initialBoard(game), white.create(), black.create(), false);
+        mode.setSeed(seed);
+        mode.name = key;
+        Board board = mode.game();
+        FieldValue winner = board.getWinner();
+        return new GameResult(key, white.toString(), black.toString(), seed, winner == null ? FieldValue.EMPTY : winner);
+    }
+
+    //every game gets a fixed seed derived from its key, so it is the same after a resume
+    //and a game of the log can be played again with the same random choices
+    public static long seedFor(String key) {
+        return key.hashCode() * 0x9E3779B97F4A7C15L;
+    }
+}
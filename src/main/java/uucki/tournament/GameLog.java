@@ -0,0 +1,90 @@
+package uucki.tournament;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.*;
+
+/*
+ * Append-only log of finished games, one tab separated line per game.
+ * Every line is synced to disk before append returns, so after a crash
+ * at most the game that was being written is lost. A partially written
+ * last line is cut off when the log is opened again.
+ */
+public class GameLog {
+
+    private File file = null;
+    private Map<String, GameResult> results = new LinkedHashMap<String, GameResult>();
+    private FileOutputStream stream = null;
+    private int corruptLines = 0;
+
+    public GameLog(File file) throws IOException {
+        this.file = file;
+        if(file.exists()) {
+            load();
+        }
+        stream = new FileOutputStream(file, true);
+    }
+
+    private void load() throws IOException {
+        byte[] bytes = Files.readAllBytes(file.toPath());
+        int validLength = 0;
+        for(int i = bytes.length - 1; i >= 0; i--) {
+            if(bytes[i] == '\n') {
+                validLength = i + 1;
+                break;
+            }
+        }
+
+        String content = new String(bytes, 0, validLength, StandardCharsets.UTF_8);
+        for(String line : content.split("\n")) {
+            if(line.isEmpty()) {
+                continue;
+            }
+            GameResult result = GameResult.parse(line);
+            if(result == null) {
+                corruptLines++;
+            } else {
+                results.put(result.key, result);
+            }
+        }
+
+        //the last line was not completely written, throw it away
+        if(validLength < bytes.length) {
+            try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+                raf.setLength(validLength);
+            }
+        }
+    }
+
+    public synchronized boolean contains(String key) {
+        return results.containsKey(key);
+    }
+
+    public synchronized GameResult get(String key) {
+        return results.get(key);
+    }
+
+    public synchronized int size() {
+        return results.size();
+    }
+
+    public int getCorruptLines() {
+        return corruptLines;
+    }
+
+    public synchronized List<GameResult> getResults() {
+        return new ArrayList<GameResult>(results.values());
+    }
+
+    public synchronized void append(GameResult result) throws IOException {
+        stream.write((result.toLine() + "\n").getBytes(StandardCharsets.UTF_8));
+        stream.flush();
+        stream.getFD().sync();
+        results.put(result.key, result);
+    }
+
+    public synchronized void close() throws IOException {
+        stream.close();
+    }
+}
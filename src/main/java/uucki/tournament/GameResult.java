@@ -0,0 +1,41 @@
+package uucki.tournament;
+
+import uucki.type.FieldValue;
+
+public class GameResult {
+
+    public String key = null;
+    public String white = null;
+    public String black = null;
+    public long seed = 0;
+    public FieldValue winner = FieldValue.EMPTY;
+
+    public GameResult(String key, String white, String black, long seed, FieldValue winner) {
+        this.key = key;
+        this.white = white;
+        this.black = black;
+        this.seed = seed;
+        this.winner = winner;
+    }
+
+    public String toLine() {
+        return key + "\t" + white + "\t" + black + "\t" + seed + "\t" + winner.name();
+    }
+
+    //returns null for lines that are incomplete or corrupt
+    public static GameResult parse(String line) {
+        String[] parts = line.split("\t");
+        if(parts.length != 5) {
+            return null;
+        }
+        try {
+            return new GameResult(parts[0], parts[1], parts[2], Long.parseLong(parts[3]), FieldValue.valueOf(parts[4]));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    public String toString() {
+        return toLine();
+    }
+}
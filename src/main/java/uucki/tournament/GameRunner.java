@@ -0,0 +1,10 @@
+package uucki.tournament;
+
+import java.util.concurrent.CompletableFuture;
+
+public interface GameRunner {
+
+    public CompletableFuture<GameResult> submit(GameJob job);
+
+    public void close();
+}
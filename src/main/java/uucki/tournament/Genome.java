@@ -0,0 +1,81 @@
+package uucki.tournament;
+
+import uucki.algorithm.AlgorithmConfig;
+
+import java.util.Random;
+
+public class Genome {
+
+    public AlgorithmConfig config = null;
+
+    //games against the reference player, draws count as half a win
+    public double wins = 0;
+    public int games = 0;
+
+    int n = 0;
+    double variance = 0.1;
+
+    public Genome(AlgorithmConfig config) {
+        this.config = config;
+    }
+
+    public Genome(Genome g) {
+        this.config = new AlgorithmConfig(g.config);
+        this.n = 0;
+        this.variance = g.variance;
+    }
+
+    //estimated win rate, with one virtual win and loss so that a single game does not decide it
+    public double fitness() {
+        return (wins + 1) / (games + 2);
+    }
+
+    //self adaptive step size for c, every other parameter changes with a small probability
+    //only the first strategies simulation strategies are used, the others do not apply to every game
+    public void mutate(Random random, int maxThreads, int strategies) {
+        n++;
+        double randomNumber = random.nextGaussian();
+        variance = variance * Math.exp(randomNumber / Math.sqrt(n));
+        config.c = Math.max(0, config.c + variance * random.nextGaussian());
+
+        if(random.nextDouble() < 0.2) {
+            config.strategy = random.nextInt(strategies);
+        }
+        if(random.nextDouble() < 0.2) {
+            config.tuned = !config.tuned;
+        }
+        if(random.nextDouble() < 0.2) {
+            config.threads += random.nextBoolean() ? 1 : -1;
+            config.threads = Math.max(1, Math.min(maxThreads, config.threads));
+        }
+    }
+
+    public static Genome crossOver(Random random, Genome g1, Genome g2) {
+        Genome child = new Genome(g1);
+        child.config.c = (g1.config.c + g2.config.c) * 0.5;
+        child.variance = (g1.variance + g2.variance) * 0.5;
+        if(random.nextBoolean()) {
+            child.config.strategy = g2.config.strategy;
+        }
+        if(random.nextBoolean()) {
+            child.config.tuned = g2.config.tuned;
+        }
+        if(random.nextBoolean()) {
+            child.config.threads = g2.config.threads;
+        }
+        return child;
+    }
+
+    public static Genome random(Random random, double lowEnd, double highEnd, int maxThreads, int strategies) {
+        AlgorithmConfig config = new AlgorithmConfig();
+        config.c = random.nextDouble() * (highEnd - lowEnd) + lowEnd;
+        config.strategy = random.nextInt(strategies);
+        config.tuned = random.nextBoolean();
+        config.threads = 1 + random.nextInt(maxThreads);
+        return new Genome(config);
+    }
+
+    public String toString() {
+        return config + " " + wins + "/" + games;
+    }
+}
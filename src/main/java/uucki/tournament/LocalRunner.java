@@ -0,0 +1,44 @@
+package uucki.tournament;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/*
+ * Plays games on a fixed number of threads in this process.
+ * Games that are already in the log are not played again.
+ */
+public class LocalRunner implements GameRunner {
+
+    private GameLog log = null;
+    private ExecutorService executor = null;
+
+    public LocalRunner(GameLog log, int concurrentGames) {
+        this.log = log;
+        this.executor = Executors.newFixedThreadPool(concurrentGames);
+    }
+
+    public CompletableFuture<GameResult> submit(GameJob job) {
+        GameResult logged = log.get(job.key);
+        if(logged != null) {
+            return CompletableFuture.completedFuture(logged);
+        }
+
+        return CompletableFuture.supplyAsync(() -> {
+            long time = System.currentTimeMillis();
+            GameResult result = job.play();
+            System.out.println("Played " + job.key + " in " + (System.currentTimeMillis() - time) + "ms");
+            try {
+                log.append(result);
+            } catch (IOException e) {
+                System.out.println("Could not log " + job.key + ": " + e.getMessage());
+            }
+            return result;
+        }, executor);
+    }
+
+    public void close() {
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,69 @@
+package uucki.tournament;
+
+/*
+ * Sequential probability ratio test for a single pairing.
+ * H0: the first player is elo0 stronger, H1: the first player is elo1 stronger.
+ * Draws are counted as half a win and half a loss.
+ */
+public class Sprt {
+
+    public static final int CONTINUE = 0;
+    public static final int ACCEPT_H0 = 1;
+    public static final int ACCEPT_H1 = 2;
+
+    private double winWeight = 0;
+    private double lossWeight = 0;
+    private double lowerBound = 0;
+    private double upperBound = 0;
+
+    public double wins = 0;
+    public double draws = 0;
+    public double losses = 0;
+
+    public Sprt(double elo0, double elo1, double alpha, double beta) {
+        double p0 = expectedScore(elo0);
+        double p1 = expectedScore(elo1);
+        winWeight = Math.log(p1 / p0);
+        lossWeight = Math.log((1 - p1) / (1 - p0));
+        lowerBound = Math.log(beta / (1 - alpha));
+        upperBound = Math.log((1 - beta) / alpha);
+    }
+
+    //score of the first player: 1 win, 0.5 draw, 0 loss
+    public void add(double score) {
+        if(score > 0.5) {
+            wins++;
+        } else if(score < 0.5) {
+            losses++;
+        } else {
+            draws++;
+        }
+    }
+
+    public double games() {
+        return wins + draws + losses;
+    }
+
+    public double llr() {
+        return (wins + draws * 0.5) * winWeight + (losses + draws * 0.5) * lossWeight;
+    }
+
+    public int status() {
+        double llr = llr();
+        if(llr >= upperBound) {
+            return ACCEPT_H1;
+        }
+        if(llr <= lowerBound) {
+            return ACCEPT_H0;
+        }
+        return CONTINUE;
+    }
+
+    public boolean isDecided() {
+        return status() != CONTINUE;
+    }
+
+    public static double expectedScore(double elo) {
+        return 1 / (1 + Math.pow(10, -elo / 400));
+    }
+}
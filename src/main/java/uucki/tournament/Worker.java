@@ -0,0 +1,83 @@
+package uucki.tournament;
+
+import java.io.*;
+import java.net.ConnectException;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+/*
+ * Plays the games a Coordinator hands out, one game at a time per connection.
+ * Run several workers (or one with more slots) to play games in parallel.
+ */
+public class Worker implements Runnable {
+
+    private final static int RETRY_TIME = 5000;
+
+    private String host = null;
+    private int port = 0;
+
+    public Worker(String host, int port) {
+        this.host = host;
+        this.port = port;
+    }
+
+    public void run() {
+        while(true) {
+            try (Socket socket = new Socket(host, port)) {
+                BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+                PrintWriter out = new PrintWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8), true);
+
+                out.println("READY");
+                String line = null;
+                while((line = in.readLine()) != null) {
+                    if(line.equals("QUIT")) {
+                        return;
+                    }
+                    if(!line.startsWith("GAME\t")) {
+                        System.out.println("Unknown message: " + line);
+                        continue;
+                    }
+                    try {
+                        GameJob job = Coordinator.parseJob(line.substring(5));
+                        long time = System.currentTimeMillis();
+                        GameResult result = job.play();
+                        System.out.println("Played " + job.key + " in " + (System.currentTimeMillis() - time) + "ms");
+                        out.println("RESULT\t" + result.toLine());
+                    } catch (RuntimeException e) {
+                        //the coordinator gives the game to another worker, or gives up on it
+                        System.out.println("Could not play " + line.substring(5) + ": " + e);
+                        out.println("ERROR\t" + line.substring(5).split("\t")[0]);
+                    }
+                    out.println("READY");
+                }
+                //the coordinator went away without saying goodbye, it may be restarting
+                System.out.println("Connection closed, reconnecting");
+            } catch (ConnectException e) {
+                System.out.println("Coordinator not reachable, retrying");
+            } catch (IOException e) {
+                System.out.println("Connection lost: " + e.getMessage() + ", reconnecting");
+            }
+
+            try {
+                Thread.sleep(RETRY_TIME);
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    public static void start(String host, int port, int slots) {
+        Thread[] threads = new Thread[slots];
+        for(int i = 0; i < slots; i++) {
+            threads[i] = new Thread(new Worker(host, port), "worker-" + i);
+            threads[i].start();
+        }
+        for(Thread thread : threads) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+
+            }
+        }
+    }
+}
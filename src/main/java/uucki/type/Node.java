@@ -1,10 +1,30 @@
 package uucki.type;
 
+import java.util.List;
+
 public class Node<T> {
+    //results that are proven by the MCTS solver, for the player that moved into the node
+    public final static int UNKNOWN = 0;
+    public final static int WIN = 1;
+    public final static int DRAW = 2;
+    public final static int LOSS = 3;
+
     public volatile int score = 0;
     public volatile int plays = 0;
     public T item = null;
     public FieldValue color = null;
+    public volatile int proven = UNKNOWN;
+
+    //estimate between 0 and 1 for the player that moved into the node, NaN when there is none
+    public volatile double minimax = Double.NaN;
+
+    //set once every child has been visited, with the square of the move to each child
+    public volatile List<Node<T>> children = null;
+    public int[] childSquares = null;
+
+    //all-moves-as-first statistics of the moves of color, per square, only kept by MCTS with RAVE
+    public int[] amafPlays = null;
+    public float[] amafScore = null;
 
     public Node(T item, FieldValue color) {
         this.item = item;